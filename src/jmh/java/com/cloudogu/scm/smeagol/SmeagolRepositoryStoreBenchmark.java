@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.web.security.AdministrationContext;
+import sonia.scm.web.security.PrivilegedAction;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static java.util.stream.Collectors.toList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lists the repositories of an instance with thousands of repositories after the smeagol information
+ * has been initialized, as done for each request of the repository collection.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SmeagolRepositoryStoreBenchmark {
+
+  @Param({"1000", "10000"})
+  private int repositoryCount;
+
+  private SmeagolRepositoryStore store;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void createStore() {
+    List<Repository> repositories = new ArrayList<>();
+    Map<String, RepositoryInformation> information = new HashMap<>();
+    for (int i = 0; i < repositoryCount; ++i) {
+      Repository repository = new Repository(String.valueOf(i), i % 10 == 0 ? "hg" : "git", "space" + i % 50, "repository" + i);
+      repositories.add(repository);
+      information.put(repository.getId(), new RepositoryInformation("main", i % 3 == 0));
+    }
+
+    RepositoryManager repositoryManager = mock(RepositoryManager.class);
+    when(repositoryManager.getAll(any(Predicate.class), any(Comparator.class))).thenAnswer(invocation -> {
+      List<Repository> result = repositories
+        .stream()
+        .filter(invocation.getArgument(0, Predicate.class))
+        .collect(toList());
+      result.sort(invocation.getArgument(1, Comparator.class));
+      return result;
+    });
+    RepositoryInformationInitializer initializer = mock(RepositoryInformationInitializer.class);
+    when(initializer.call()).thenReturn(information);
+
+    // the store initializes itself as administrator, so the action has to be run for real
+    AdministrationContext administrationContext = mock(AdministrationContext.class);
+    doAnswer(invocation -> {
+      invocation.getArgument(0, PrivilegedAction.class).run();
+      return null;
+    }).when(administrationContext).runAsAdmin(any(PrivilegedAction.class));
+
+    store = new SmeagolRepositoryStore(
+      administrationContext,
+      initializer,
+      repositoryManager,
+      mock(RepositoryInformationComputer.class)
+    );
+    store.init(null);
+  }
+
+  @TearDown
+  public void closeStore() {
+    store.close();
+  }
+
+  @Benchmark
+  public Object getRepositories() {
+    return store.getRepositories();
+  }
+
+  @Benchmark
+  public Object streamWikiRepositories() {
+    return store.streamRepositories(true).collect(toList());
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import com.cloudogu.scm.smeagol.SyntheticWikiRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Modification;
+import sonia.scm.repository.Modifications;
+import sonia.scm.repository.Modified;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.CatCommandBuilder;
+import sonia.scm.repository.api.ModificationsCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.Answers.RETURNS_SELF;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Collects the paths of a {@link SyntheticWikiRepository} with many directories and files, once for
+ * a complete revision and once for the pages changed after the initial commit. The commands of the
+ * repository service are answered from the generated default branch.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PathCollectorBenchmark {
+
+  @Param({"10000", "100000"})
+  private int pages;
+
+  @Param("20")
+  private int commits;
+
+  private final Map<String, List<FileObject>> children = new HashMap<>();
+  private final Map<String, FileObject> directories = new HashMap<>();
+  private final SmeagolConfigurationCache configurationCache = new SmeagolConfigurationCache();
+  private Path repositoryDirectory;
+  private RepositoryService repositoryService;
+  private String browsedPath;
+
+  @Setup
+  public void createRepository() throws IOException {
+    repositoryDirectory = Files.createTempDirectory("smeagol-benchmark");
+    SyntheticWikiRepository wiki = SyntheticWikiRepository.builder()
+      .pages(pages)
+      .depth(2)
+      .directoriesPerLevel(10)
+      .commits(commits)
+      .pageSize(256)
+      .create(repositoryDirectory);
+    Map<String, byte[]> files = wiki.readFiles(SyntheticWikiRepository.DEFAULT_BRANCH);
+
+    for (String path : files.keySet()) {
+      children(parentOf(path)).add(fileObject(path, false));
+    }
+    children.forEach((path, directoryChildren) -> {
+      FileObject directory = fileObject(path, true);
+      directory.setChildren(directoryChildren);
+      directories.put(path, directory);
+    });
+
+    BrowseCommandBuilder browseCommand = mock(BrowseCommandBuilder.class, RETURNS_SELF);
+    when(browseCommand.setPath(anyString())).thenAnswer(invocation -> {
+      browsedPath = invocation.getArgument(0);
+      return browseCommand;
+    });
+    when(browseCommand.getBrowserResult()).thenAnswer(invocation -> new BrowserResult("42", directories.get(browsedPath)));
+
+    ModificationsCommandBuilder modificationsCommand = mock(ModificationsCommandBuilder.class, RETURNS_SELF);
+    Modifications changedPages = new Modifications(
+      "42", wiki.getChangedPages().stream().map(Modified::new).toArray(Modification[]::new)
+    );
+    when(modificationsCommand.getModifications()).thenReturn(changedPages);
+
+    CatCommandBuilder catCommand = mock(CatCommandBuilder.class, RETURNS_SELF);
+    when(catCommand.getContent(".smeagol.yml")).thenReturn(new String(files.get(".smeagol.yml"), StandardCharsets.UTF_8));
+
+    repositoryService = mock(RepositoryService.class);
+    when(repositoryService.getRepository()).thenReturn(new Repository("42", "git", "space", "wiki"));
+    when(repositoryService.getBrowseCommand()).thenReturn(browseCommand);
+    when(repositoryService.getModificationsCommand()).thenReturn(modificationsCommand);
+    when(repositoryService.getCatCommand()).thenReturn(catCommand);
+  }
+
+  private List<FileObject> children(String path) {
+    List<FileObject> directoryChildren = children.get(path);
+    if (directoryChildren == null) {
+      directoryChildren = new ArrayList<>();
+      children.put(path, directoryChildren);
+      if (!path.isEmpty()) {
+        children(parentOf(path)).add(fileObject(path, true));
+      }
+    }
+    return directoryChildren;
+  }
+
+  private String parentOf(String path) {
+    int separator = path.lastIndexOf('/');
+    return separator < 0 ? "" : path.substring(0, separator);
+  }
+
+  private FileObject fileObject(String path, boolean directory) {
+    FileObject file = new FileObject();
+    file.setName(path.substring(path.lastIndexOf('/') + 1));
+    file.setPath(path);
+    file.setDirectory(directory);
+    return file;
+  }
+
+  @TearDown
+  public void deleteRepository() throws IOException {
+    try (Stream<Path> paths = Files.walk(repositoryDirectory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Benchmark
+  public Collection<String> revisionPathCollector() {
+    RevisionPathCollector collector = new RevisionPathCollector(repositoryService, resolver());
+    collector.collect("42");
+    return collector.getPathToStore();
+  }
+
+  @Benchmark
+  public Collection<String> updatePathCollector() {
+    UpdatePathCollector collector = new UpdatePathCollector(repositoryService, resolver());
+    collector.collect("23", "42");
+    return collector.getPathToStore();
+  }
+
+  private SmeagolConfigurationResolver resolver() {
+    return new SmeagolConfigurationResolver(repositoryService, configurationCache);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import com.cloudogu.scm.smeagol.SyntheticWikiRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.CatCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Creates the documents for a batch of markdown files of different sizes from the pages of a
+ * {@link SyntheticWikiRepository}. The content is read into memory beforehand, so that only the
+ * document creation is measured.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SmeagolDocumentFactoryBenchmark {
+
+  @Param({"10000", "1000000"})
+  private int documentSize;
+
+  @Param("100")
+  private int documentCount;
+
+  private final SmeagolDocumentFactory factory = new SmeagolDocumentFactory();
+  private final Branch branch = Branch.defaultBranch("main", "42", 0L);
+  private Path repositoryDirectory;
+  private List<String> paths;
+  private RepositoryService repositoryService;
+
+  @Setup
+  public void createDocuments() throws IOException {
+    repositoryDirectory = Files.createTempDirectory("smeagol-benchmark");
+    SyntheticWikiRepository wiki = SyntheticWikiRepository.builder()
+      .pages(documentCount)
+      .depth(1)
+      .pageSize(documentSize)
+      .assetsEvery(0)
+      .create(repositoryDirectory);
+    Map<String, byte[]> files = wiki.readFiles(SyntheticWikiRepository.DEFAULT_BRANCH);
+    paths = wiki.getPages();
+
+    Repository repository = new Repository("42", "git", "space", "wiki");
+    CatCommandBuilder catCommand = mock(CatCommandBuilder.class);
+    when(catCommand.setRevision("42")).thenReturn(catCommand);
+    when(catCommand.getStream(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(files.get(invocation.<String>getArgument(0))));
+
+    repositoryService = mock(RepositoryService.class);
+    when(repositoryService.getRepository()).thenReturn(repository);
+    when(repositoryService.getCatCommand()).thenReturn(catCommand);
+  }
+
+  @TearDown
+  public void deleteRepository() throws IOException {
+    try (Stream<Path> files = Files.walk(repositoryDirectory)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Benchmark
+  public List<SmeagolDocument> create() throws IOException {
+    return factory.create(repositoryService, branch, paths);
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.CatCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Answers.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Matches a million paths of a large repository, most of them no markdown files, against the smeagol
+ * directory. Compares the former check (which created a lower case copy of every path) with the
+ * {@link SmeagolPathMatcher}, directly and through {@link SmeagolConfigurationResolver#isSmeagolDocument(String)}.
+ * Run with the gc profiler to see the allocation rates.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SmeagolPathMatcherBenchmark {
+
+  private static final String[] DIRECTORIES = {"docs", "docs/guide", "src/main/java/com/example", "src/test/resources", "assets/images"};
+  private static final String[] SUFFIXES = {".java", ".md", ".MD", ".png", ".xml", ".yml", ".ts"};
+
+  @Param("1000000")
+  private int pathCount;
+
+  @Param({"docs", "."})
+  private String smeagolDirectory;
+
+  private String[] paths;
+  private SmeagolPathMatcher matcher;
+  private SmeagolConfigurationResolver resolver;
+
+  @Setup
+  public void createPaths() throws IOException {
+    Random random = new Random(42);
+    paths = new String[pathCount];
+    for (int i = 0; i < pathCount; ++i) {
+      String directory = DIRECTORIES[random.nextInt(DIRECTORIES.length)];
+      String suffix = SUFFIXES[random.nextInt(SUFFIXES.length)];
+      paths[i] = directory + "/file" + i + suffix;
+    }
+    matcher = SmeagolPathMatcher.forDirectory(smeagolDirectory);
+
+    CatCommandBuilder catCommand = mock(CatCommandBuilder.class, RETURNS_SELF);
+    when(catCommand.getContent(".smeagol.yml")).thenReturn("directory: " + smeagolDirectory);
+    RepositoryService repositoryService = mock(RepositoryService.class);
+    when(repositoryService.getRepository()).thenReturn(new Repository("42", "git", "space", "wiki"));
+    when(repositoryService.getCatCommand()).thenReturn(catCommand);
+    resolver = new SmeagolConfigurationResolver(repositoryService, new SmeagolConfigurationCache());
+    resolver.readConfig("42");
+  }
+
+  @Benchmark
+  public int lowerCaseCopy() {
+    String prefix = ".".equals(smeagolDirectory) ? "" : smeagolDirectory;
+    int count = 0;
+    for (String path : paths) {
+      if (path.startsWith(prefix) && path.toLowerCase(Locale.ENGLISH).endsWith(".md")) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int pathMatcher() {
+    int count = 0;
+    for (String path : paths) {
+      if (matcher.matches(path)) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int configurationResolver() {
+    int count = 0;
+    for (String path : paths) {
+      if (resolver.isSmeagolDocument(path)) {
+        ++count;
+      }
+    }
+    return count;
+  }
+}
@@ -22,6 +22,7 @@ import sonia.scm.api.v2.resources.HalAppender;
 import sonia.scm.api.v2.resources.HalEnricher;
 import sonia.scm.api.v2.resources.HalEnricherContext;
 import sonia.scm.api.v2.resources.Index;
+import sonia.scm.config.ConfigurationPermissions;
 import sonia.scm.plugin.Extension;
 
 import jakarta.inject.Inject;
@@ -44,12 +45,16 @@ class IndexLinkEnricher implements HalEnricher {
     HalAppender.LinkArrayBuilder smeagolArray = appender.linkArrayBuilder("smeagol");
     smeagolArray
       .append("repositories", smeagolLinkBuilder.getRepositoriesLink());
-    if (configuration.get().isEnabled() && configuration.get().isNavLinkEnabled()) {
-      smeagolArray.append("smeagolRoot", configuration.get().getSmeagolUrl());
+    SmeagolConfiguration.Config config = configuration.get();
+    if (config.isEnabled() && config.isNavLinkEnabled()) {
+      smeagolArray.append("smeagolRoot", config.getSmeagolUrl());
     }
     smeagolArray.build();
     if (SecurityUtils.getSubject().isAuthenticated()) {
       appender.appendLink("smeagolConfig", smeagolLinkBuilder.getConfigurationLink());
     }
+    if (ConfigurationPermissions.read("smeagol").isPermitted()) {
+      appender.appendLink("smeagolIndexStatus", smeagolLinkBuilder.getIndexStatusLink());
+    }
   }
 }
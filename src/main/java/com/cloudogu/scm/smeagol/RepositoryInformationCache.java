@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol;
+
+import com.github.legman.Subscribe;
+import sonia.scm.HandlerEventType;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.Optional;
+
+/**
+ * Persists computed {@link RepositoryInformation}, so that it does not have to be computed again
+ * after a restart, as long as the branches of the repository have not changed.
+ */
+@Extension
+@Singleton
+class RepositoryInformationCache {
+
+  private static final String STORE_NAME = "smeagol-repository-information";
+
+  private final DataStore<StoredRepositoryInformation> store;
+
+  @Inject
+  RepositoryInformationCache(DataStoreFactory storeFactory) {
+    this.store = storeFactory.withType(StoredRepositoryInformation.class).withName(STORE_NAME).build();
+  }
+
+  Optional<StoredRepositoryInformation> get(Repository repository) {
+    return store.getOptional(repository.getId());
+  }
+
+  void put(Repository repository, StoredRepositoryInformation information) {
+    store.put(repository.getId(), information);
+  }
+
+  @Subscribe
+  public void handle(RepositoryEvent event) {
+    if (event.getEventType() == HandlerEventType.DELETE) {
+      store.remove(event.getItem().getId());
+    }
+  }
+}
@@ -16,6 +16,11 @@
 
 package com.cloudogu.scm.smeagol;
 
+import com.cloudogu.scm.smeagol.search.SmeagolConfigurationCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.NotFoundException;
 import sonia.scm.repository.Branch;
 import sonia.scm.repository.InternalRepositoryException;
@@ -25,43 +30,127 @@ import sonia.scm.repository.api.RepositoryService;
 import sonia.scm.repository.api.RepositoryServiceFactory;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+@Singleton
 class RepositoryInformationComputer {
 
+  private static final Logger LOG = LoggerFactory.getLogger(RepositoryInformationComputer.class);
+
   public static final String SMEAGOL_MARKER_FILE = System.getProperty("com.cloudogu.scm.smeagol.markerFile", ".smeagol.yml");
 
+  private static final long MARKER_CACHE_SIZE = Long.getLong("com.cloudogu.scm.smeagol.markerCacheSize", 10000L);
+
+  private static final Comparator<Branch> DEFAULT_BRANCH_FIRST = Comparator.comparing(branch -> !branch.isDefaultBranch());
+
   private final RepositoryServiceFactory serviceFactory;
+  private final RepositoryInformationCache cache;
+  private final SmeagolConfigurationCache configurationCache;
+
+  /**
+   * Whether the marker file exists for a revision of a repository; keys are created by
+   * {@link #markerCacheKey(Repository, String)}. The result for a revision never changes.
+   */
+  private final Cache<String, Boolean> markerCache = CacheBuilder.newBuilder()
+    .maximumSize(MARKER_CACHE_SIZE)
+    .build();
 
   @Inject
-  RepositoryInformationComputer(RepositoryServiceFactory serviceFactory) {
+  RepositoryInformationComputer(RepositoryServiceFactory serviceFactory, RepositoryInformationCache cache, SmeagolConfigurationCache configurationCache) {
     this.serviceFactory = serviceFactory;
+    this.cache = cache;
+    this.configurationCache = configurationCache;
   }
 
   RepositoryInformation compute(Repository repository) {
+    return compute(repository, Collections.emptySet());
+  }
+
+  /**
+   * Computes the information for the given repository. The marker file is only looked up in
+   * branches that have been touched, i.e. which are listed in <code>touchedBranches</code> or whose
+   * head revision changed since the last computation. For all other branches the stored results
+   * are reused.
+   */
+  RepositoryInformation compute(Repository repository, Collection<String> touchedBranches) {
     try (RepositoryService service = serviceFactory.create(repository)) {
       if (!service.isSupported(Command.BRANCHES)) {
         throw new IllegalArgumentException("Repository type without branch support not supported");
       }
       List<Branch> branches = loadBranches(repository, service);
       String defaultBranch = findDefaultBranch(branches);
-      boolean smeagolWiki = detectSmeagolWiki(service, branches);
-      return new RepositoryInformation(defaultBranch, smeagolWiki);
+      Optional<StoredRepositoryInformation> stored = cache.get(repository);
+      if (touchedBranches.isEmpty() && stored.isPresent() && stored.get().isDerivedFrom(branches, defaultBranch)) {
+        LOG.trace("branches of repository {} unchanged, using stored smeagol information", repository);
+        return stored.get().toRepositoryInformation();
+      }
+      Map<String, Boolean> results = stored
+        .map(storedInformation -> storedInformation.reusableResults(branches, touchedBranches))
+        .orElseGet(HashMap::new);
+      boolean smeagolWiki = detectSmeagolWiki(repository, service, branches, results);
+      RepositoryInformation information = new RepositoryInformation(defaultBranch, smeagolWiki);
+      cache.put(repository, StoredRepositoryInformation.of(information, branches, results));
+      return information;
     }
   }
 
-  private boolean detectSmeagolWiki(RepositoryService service, List<Branch> branches) {
-    return branches
-      .stream()
-      .anyMatch(branch -> hasSmeagolFile(service, branch));
+  private boolean detectSmeagolWiki(Repository repository, RepositoryService service, List<Branch> branches, Map<String, Boolean> results) {
+    if (results.containsValue(Boolean.TRUE)) {
+      return true;
+    }
+    // the default branch is the most likely location of the marker file, so we check it first
+    List<Branch> sortedBranches = new ArrayList<>(branches);
+    sortedBranches.sort(DEFAULT_BRANCH_FIRST);
+    for (Branch branch : sortedBranches) {
+      if (!results.containsKey(branch.getName())) {
+        boolean smeagolFile = hasSmeagolFile(repository, service, branch);
+        results.put(branch.getName(), smeagolFile);
+        if (smeagolFile) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean hasSmeagolFile(Repository repository, RepositoryService service, Branch branch) {
+    if (branch.getRevision() == null) {
+      return browseSmeagolFile(service, branch.getName());
+    }
+    if (SMEAGOL_MARKER_FILE.equals(SmeagolConfigurationCache.CONFIGURATION_FILE)) {
+      Optional<Boolean> configured = configurationCache.isConfigured(repository, branch.getRevision());
+      if (configured.isPresent()) {
+        // the configuration has already been read for the search index
+        return configured.get();
+      }
+    }
+    String key = markerCacheKey(repository, branch.getRevision());
+    Boolean smeagolFile = markerCache.getIfPresent(key);
+    if (smeagolFile == null) {
+      smeagolFile = browseSmeagolFile(service, branch.getRevision());
+      markerCache.put(key, smeagolFile);
+    }
+    return smeagolFile;
+  }
+
+  private String markerCacheKey(Repository repository, String revision) {
+    return repository.getId() + ":" + revision;
   }
 
-  private boolean hasSmeagolFile(RepositoryService service, Branch branch) {
+  private boolean browseSmeagolFile(RepositoryService service, String revision) {
     try {
       return service
         .getBrowseCommand()
-        .setRevision(branch.getName())
+        .setRevision(revision)
         .setPath(SMEAGOL_MARKER_FILE)
         .setDisableLastCommit(true)
         .getBrowserResult().getFile() != null;
@@ -16,16 +16,35 @@
 
 package com.cloudogu.scm.smeagol;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryManager;
 
 import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import static java.util.stream.Collectors.toList;
 
 class RepositoryInformationInitializer implements Callable<Map<String, RepositoryInformation>> {
 
+  private static final Logger LOG = LoggerFactory.getLogger(RepositoryInformationInitializer.class);
+
+  private static final int THREAD_COUNT = Integer.getInteger(
+    "com.cloudogu.scm.smeagol.initializer.threads",
+    Math.max(1, Runtime.getRuntime().availableProcessors())
+  );
+
   private final RepositoryManager repositoryManager;
   private final RepositoryInformationComputer computer;
 
@@ -35,15 +54,63 @@ class RepositoryInformationInitializer implements Callable<Map<String, Repositor
     this.computer = computer;
   }
 
+  /**
+   * Computes the information for all smeagol relevant repositories using a bounded pool of worker
+   * threads. Repositories whose computation fails are logged and left out of the result, so that
+   * they can be computed on demand later on.
+   */
   @Override
   public Map<String, RepositoryInformation> call() {
-    return repositoryManager.getAll()
+    Map<String, RepositoryInformation> result = new ConcurrentHashMap<>();
+    initialize(result::put);
+    return result;
+  }
+
+  /**
+   * Like {@link #call()}, but hands every computed information to the given consumer as soon as it
+   * is available. The consumer is called from the worker threads and therefore has to be thread safe.
+   */
+  void initialize(BiConsumer<String, RepositoryInformation> consumer) {
+    List<Repository> repositories = repositoryManager.getAll()
       .stream()
       .filter(SmeagolRepositoryFilter::isPotentiallySmeagolRelevant)
-      .collect(Collectors.toMap(Repository::getId, this::buildInformation));
+      .collect(toList());
+
+    ExecutorService executorService = createExecutorService(repositories.size());
+    try {
+      List<Future<?>> futures = new ArrayList<>(repositories.size());
+      for (Repository repository : repositories) {
+        futures.add(executorService.submit(() -> buildInformation(repository, consumer)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      LOG.warn("Got interrupted while computing repository information, information will be incomplete", e);
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // buildInformation catches all exceptions, so this should never happen
+      LOG.warn("Got an unexpected exception while computing repository information", e);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void buildInformation(Repository repository, BiConsumer<String, RepositoryInformation> consumer) {
+    try {
+      consumer.accept(repository.getId(), computer.compute(repository));
+    } catch (Exception e) {
+      LOG.warn("Could not compute smeagol information for repository {}", repository, e);
+    }
   }
 
-  private RepositoryInformation buildInformation(Repository repository) {
-    return computer.compute(repository);
+  private ExecutorService createExecutorService(int repositoryCount) {
+    return Executors.newFixedThreadPool(
+      Math.max(1, Math.min(THREAD_COUNT, repositoryCount)),
+      new ThreadFactoryBuilder()
+        .setNameFormat("smeagol-initializer-%d")
+        .setDaemon(true)
+        .build()
+    );
   }
 }
@@ -41,20 +41,22 @@ public class RepositoryLinkEnricher implements HalEnricher {
 
   @Override
   public void enrich(HalEnricherContext context, HalAppender appender) {
-    if (configuration.get().isEnabled()) {
+    SmeagolConfiguration.Config config = configuration.get();
+    if (config.isEnabled()) {
       Repository repository = context.oneRequireByType(Repository.class);
       if (shouldEnrich(repository)) {
-        appender.appendLink("smeagolWiki", createSmeagolUrl(repository));
+        appender.appendLink("smeagolWiki", createSmeagolUrl(config, repository));
       }
     }
   }
 
   private boolean shouldEnrich(Repository repository) {
+    // we must not compute missing information within the request, the link will be added once it is computed
     return SmeagolRepositoryFilter.isPotentiallySmeagolRelevant(repository)
-      && store.getFor(repository).isWikiEnabled();
+      && store.findFor(repository).map(RepositoryInformation::isWikiEnabled).orElse(false);
   }
 
-  private String createSmeagolUrl(Repository repository) {
-    return HttpUtil.concatenate(configuration.get().getSmeagolUrl(), repository.getId());
+  private String createSmeagolUrl(SmeagolConfiguration.Config config, Repository repository) {
+    return HttpUtil.concatenate(config.getSmeagolUrl(), repository.getId());
   }
 }
@@ -31,18 +31,42 @@ public class SmeagolConfiguration {
 
   private final ConfigurationStore<Config> configStore;
 
+  /**
+   * The current configuration, read lazily from the store and replaced on every {@link #set(Config)}.
+   * This instance is never handed out, so it cannot be modified by callers.
+   */
+  private volatile Config snapshot;
+
   @Inject
   public SmeagolConfiguration(ConfigurationStoreFactory storeFactory) {
     this.configStore = storeFactory.withType(Config.class).withName("smeagol").build();
   }
 
+  /**
+   * Returns a copy of the current configuration. Modifications of the copy have no effect;
+   * use {@link #set(Config)} to change the configuration.
+   */
   public Config get() {
-    return configStore.getOptional().orElse(new Config());
+    Config current = snapshot;
+    if (current == null) {
+      current = copy(configStore.getOptional().orElse(new Config()));
+      snapshot = current;
+    }
+    return copy(current);
   }
 
   public void set(Config config) {
     ConfigurationPermissions.write("smeagol").check();
     configStore.set(config);
+    snapshot = copy(config);
+  }
+
+  private static Config copy(Config config) {
+    Config copy = new Config();
+    copy.setEnabled(config.isEnabled());
+    copy.setNavLinkEnabled(config.isNavLinkEnabled());
+    copy.setSmeagolUrl(config.getSmeagolUrl());
+    return copy;
   }
 
   @Getter
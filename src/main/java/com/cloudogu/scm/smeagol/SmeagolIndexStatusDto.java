@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol;
+
+import de.otto.edison.hal.HalRepresentation;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@SuppressWarnings("java:S2160") // we have no definition for equals/hashCode
+public class SmeagolIndexStatusDto extends HalRepresentation {
+
+  private String repositoryId;
+  private String namespace;
+  private String name;
+  private String indexedBranch;
+  private String indexedRevision;
+  private int indexVersion;
+  private Instant lastUpdate;
+  private Long secondsSinceLastUpdate;
+  private Long lastPushLatencyMillis;
+  private String defaultBranch;
+  private String headRevision;
+  private boolean behind;
+}
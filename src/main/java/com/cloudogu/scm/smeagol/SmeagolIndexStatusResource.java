@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol;
+
+import com.cloudogu.scm.smeagol.search.DefaultBranchResolver;
+import com.cloudogu.scm.smeagol.search.IndexStatus;
+import com.cloudogu.scm.smeagol.search.IndexStatusStore;
+import com.cloudogu.scm.smeagol.search.SmeagolDocument;
+import de.otto.edison.hal.Embedded;
+import de.otto.edison.hal.HalRepresentation;
+import de.otto.edison.hal.Links;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.config.ConfigurationPermissions;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static de.otto.edison.hal.Link.link;
+import static de.otto.edison.hal.Links.linkingTo;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Shows for administrators, how up to date the smeagol search index of each repository is.
+ */
+@Path("v2/smeagol/index-status")
+public class SmeagolIndexStatusResource {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SmeagolIndexStatusResource.class);
+
+  private static final int MAX_PAGE_SIZE = 100;
+
+  private final IndexStatusStore indexStatusStore;
+  private final RepositoryManager repositoryManager;
+  private final RepositoryServiceFactory serviceFactory;
+  private final SmeagolLinkBuilder smeagolLinkBuilder;
+
+  @Inject
+  SmeagolIndexStatusResource(IndexStatusStore indexStatusStore,
+                             RepositoryManager repositoryManager,
+                             RepositoryServiceFactory serviceFactory,
+                             SmeagolLinkBuilder smeagolLinkBuilder) {
+    this.indexStatusStore = indexStatusStore;
+    this.repositoryManager = repositoryManager;
+    this.serviceFactory = serviceFactory;
+    this.smeagolLinkBuilder = smeagolLinkBuilder;
+  }
+
+  /**
+   * Returns a page of the index status of the indexed repositories together with the current head
+   * of the default branch. The head has to be resolved for every listed repository, so the size of
+   * a page is limited. With <code>behind=true</code> only repositories whose index is not up to date
+   * are listed. They are filtered before paging, so the pages and links cover only these
+   * repositories. For this, the heads of all repositories with an index of the current version are
+   * resolved from the cached branches.
+   */
+  @GET
+  @Path("")
+  @Produces("application/json")
+  public HalRepresentation getIndexStatus(@QueryParam("behind") boolean behindOnly,
+                                          @QueryParam("page") @DefaultValue("0") @Min(0) int page,
+                                          @QueryParam("pageSize") @DefaultValue("50") @Min(1) @Max(MAX_PAGE_SIZE) int pageSize) {
+    ConfigurationPermissions.read("smeagol").check();
+    Instant now = Instant.now();
+    Map<String, Repository> repositories = readableRepositories();
+    List<IndexEntry> indexed = indexStatusStore.getAll()
+      .entrySet()
+      .stream()
+      .filter(entry -> repositories.containsKey(entry.getKey()))
+      .map(entry -> new IndexEntry(repositories.get(entry.getKey()), entry.getValue()))
+      .filter(entry -> !behindOnly || entry.isBehind())
+      .sorted(Comparator.comparing((IndexEntry entry) -> entry.repository.getNamespace())
+        .thenComparing(entry -> entry.repository.getName()))
+      .collect(toList());
+
+    List<SmeagolIndexStatusDto> statuses = indexed.stream()
+      .skip((long) page * pageSize)
+      .limit(pageSize)
+      .map(entry -> createDto(entry, now))
+      .collect(toList());
+
+    int pageTotal = (indexed.size() + pageSize - 1) / pageSize;
+    Links.Builder links = linkingTo()
+      .single(link("self", smeagolLinkBuilder.getIndexStatusLink(behindOnly, page, pageSize)))
+      .single(link("first", smeagolLinkBuilder.getIndexStatusLink(behindOnly, 0, pageSize)));
+    if (page > 0) {
+      links.single(link("prev", smeagolLinkBuilder.getIndexStatusLink(behindOnly, page - 1, pageSize)));
+    }
+    if (page + 1 < pageTotal) {
+      links.single(link("next", smeagolLinkBuilder.getIndexStatusLink(behindOnly, page + 1, pageSize)));
+    }
+    links.single(link("last", smeagolLinkBuilder.getIndexStatusLink(behindOnly, Math.max(0, pageTotal - 1), pageSize)));
+    return new SmeagolRepositoryCollectionDto(
+      links.build(),
+      Embedded.embedded("indexStatus", statuses),
+      page,
+      pageTotal
+    );
+  }
+
+  /**
+   * The repository manager returns only the repositories, the current user is permitted to read.
+   * Index states of other repositories (or of deleted ones) are not listed.
+   */
+  private Map<String, Repository> readableRepositories() {
+    return repositoryManager.getAll()
+      .stream()
+      .collect(toMap(Repository::getId, identity()));
+  }
+
+  private SmeagolIndexStatusDto createDto(IndexEntry entry, Instant now) {
+    Repository repository = entry.repository;
+    IndexStatus status = entry.status;
+    SmeagolIndexStatusDto dto = new SmeagolIndexStatusDto();
+    dto.setRepositoryId(repository.getId());
+    dto.setNamespace(repository.getNamespace());
+    dto.setName(repository.getName());
+    dto.setIndexVersion(status.getVersion());
+    if (!status.isEmpty()) {
+      dto.setIndexedBranch(status.getBranch());
+      dto.setIndexedRevision(status.getRevision());
+    }
+    if (status.getLastUpdate() != null) {
+      dto.setLastUpdate(status.getLastUpdate());
+      dto.setSecondsSinceLastUpdate(Duration.between(status.getLastUpdate(), now).getSeconds());
+    }
+    dto.setLastPushLatencyMillis(status.getPushLatency());
+    entry.getDefaultBranch().ifPresent(branch -> {
+      dto.setDefaultBranch(branch.getName());
+      dto.setHeadRevision(branch.getRevision());
+    });
+    dto.setBehind(entry.isBehind());
+    return dto;
+  }
+
+  private Optional<Branch> resolveDefaultBranch(Repository repository) {
+    try (RepositoryService service = serviceFactory.create(repository)) {
+      return new DefaultBranchResolver(service).resolve();
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("could not resolve default branch of repository {}", repository, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * The index status of a repository; the head of the default branch is resolved at most once and
+   * only if it is needed.
+   */
+  private class IndexEntry {
+
+    private final Repository repository;
+    private final IndexStatus status;
+    private Optional<Branch> defaultBranch;
+
+    private IndexEntry(Repository repository, IndexStatus status) {
+      this.repository = repository;
+      this.status = status;
+    }
+
+    @SuppressWarnings("java:S2789") // null marks, that the default branch has not been resolved yet
+    private Optional<Branch> getDefaultBranch() {
+      if (defaultBranch == null) {
+        defaultBranch = resolveDefaultBranch(repository);
+      }
+      return defaultBranch;
+    }
+
+    private boolean isBehind() {
+      if (status.getVersion() != SmeagolDocument.VERSION) {
+        return true;
+      }
+      Optional<Branch> branch = getDefaultBranch();
+      if (branch.isEmpty()) {
+        return false;
+      }
+      return status.isEmpty()
+        || !branch.get().getName().equals(status.getBranch())
+        || !branch.get().getRevision().equals(status.getRevision());
+    }
+  }
+}
@@ -39,6 +39,14 @@ class SmeagolLinkBuilder {
       .href();
   }
 
+  String getRepositoriesLink(boolean wikiEnabledOnly, int page, int pageSize) {
+    String link = getRepositoriesLink() + "?page=" + page + "&pageSize=" + pageSize;
+    if (wikiEnabledOnly) {
+      return link + "&wikiEnabled=true";
+    }
+    return link;
+  }
+
   String getConfigurationLink() {
     return new LinkBuilder(scmPathInfoStore.get().get(), SmeagolResource.class)
       .method("getSmeagolConfiguration")
@@ -46,6 +54,21 @@ class SmeagolLinkBuilder {
       .href();
   }
 
+  String getIndexStatusLink() {
+    return new LinkBuilder(scmPathInfoStore.get().get(), SmeagolIndexStatusResource.class)
+      .method("getIndexStatus")
+      .parameters()
+      .href();
+  }
+
+  String getIndexStatusLink(boolean behindOnly, int page, int pageSize) {
+    String link = getIndexStatusLink() + "?page=" + page + "&pageSize=" + pageSize;
+    if (behindOnly) {
+      return link + "&behind=true";
+    }
+    return link;
+  }
+
   String getUILink(SmeagolRepositoryInformation information) {
     String rootUrl = scmPathInfoStore.get().get().getRootUri().toString();
     return HttpUtil.concatenate(rootUrl, "repo", information.getNamespace(), information.getName());
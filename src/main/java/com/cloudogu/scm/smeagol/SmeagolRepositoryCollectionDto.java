@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol;
+
+import de.otto.edison.hal.Embedded;
+import de.otto.edison.hal.HalRepresentation;
+import de.otto.edison.hal.Links;
+import lombok.Getter;
+
+@Getter
+@SuppressWarnings("java:S2160") // we have no definition for equals/hashCode
+public class SmeagolRepositoryCollectionDto extends HalRepresentation {
+
+  private final int page;
+  private final int pageTotal;
+
+  public SmeagolRepositoryCollectionDto(Links links, Embedded embedded, int page, int pageTotal) {
+    super(links, embedded);
+    this.page = page;
+    this.pageTotal = pageTotal;
+  }
+}
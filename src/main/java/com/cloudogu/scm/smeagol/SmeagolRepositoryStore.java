@@ -17,37 +17,62 @@
 package com.cloudogu.scm.smeagol;
 
 import com.github.legman.Subscribe;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.EagerSingleton;
 import sonia.scm.Initable;
+import sonia.scm.PageResult;
 import sonia.scm.SCMContextProvider;
 import sonia.scm.plugin.Extension;
 import sonia.scm.repository.PostReceiveRepositoryHookEvent;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryEvent;
 import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.repository.api.HookContext;
+import sonia.scm.repository.api.HookFeature;
+import sonia.scm.security.AuthorizationChangedEvent;
 import sonia.scm.util.Comparables;
 import sonia.scm.web.security.AdministrationContext;
 
 import jakarta.inject.Inject;
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
 
 @EagerSingleton
 @Extension
-class SmeagolRepositoryStore implements Initable {
+class SmeagolRepositoryStore implements Initable, Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(SmeagolRepositoryStore.class);
 
+  private static final boolean AWAIT_INITIALIZATION = Boolean.parseBoolean(
+    System.getProperty("com.cloudogu.scm.smeagol.awaitInitialization", "true")
+  );
+
+  private static final int RECOMPUTE_THREAD_COUNT = Integer.getInteger("com.cloudogu.scm.smeagol.recompute.threads", 2);
+
   private final CountDownLatch initializeLatch = new CountDownLatch(1);
 
   private final AdministrationContext administrationContext;
@@ -57,6 +82,37 @@ class SmeagolRepositoryStore implements Initable {
 
   private final Map<String, RepositoryInformation> repositoryInformation = new ConcurrentHashMap<>();
 
+  /**
+   * Ids of all repositories whose information has the wiki enabled.
+   */
+  private final Set<String> wikiRepositoryIds = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Changes whenever the repository information or the repositories themselves may have changed.
+   */
+  private final AtomicLong version = new AtomicLong();
+
+  /**
+   * Recomputations which are either scheduled or running, guarded by itself.
+   */
+  private final Map<String, PendingRecompute> pendingRecomputes = new HashMap<>();
+
+  /**
+   * If this is <code>true</code> (the default), requests for repository information will be blocked
+   * until the information for all repositories has been computed on startup. Otherwise, the
+   * initialization runs in the background, computed information is visible immediately and
+   * missing information is computed on demand.
+   */
+  @VisibleForTesting
+  boolean awaitInitialization = AWAIT_INITIALIZATION;
+
+  private final ExecutorService recomputeThreads = Executors.newFixedThreadPool(
+    Math.max(1, RECOMPUTE_THREAD_COUNT),
+    new ThreadFactoryBuilder().setNameFormat("smeagol-recompute-%d").setDaemon(true).build()
+  );
+
+  @VisibleForTesting
+  Executor recomputeExecutor = recomputeThreads;
 
   @Inject
   SmeagolRepositoryStore(AdministrationContext administrationContext, RepositoryInformationInitializer informationInitializer, RepositoryManager repositoryManager, RepositoryInformationComputer computer) {
@@ -71,31 +127,129 @@ class SmeagolRepositoryStore implements Initable {
     administrationContext.runAsAdmin(this::init);
   }
 
+  /**
+   * SCM-Manager restarts its injector within the same JVM, for example after a plugin has been
+   * installed, so the recompute threads must not outlive the store.
+   */
+  @Override
+  public void close() {
+    recomputeThreads.shutdownNow();
+  }
+
   @Subscribe
   public void detectCodeChanges(PostReceiveRepositoryHookEvent event) {
     Repository repository = event.getRepository();
     if (SmeagolRepositoryFilter.isPotentiallySmeagolRelevant(repository)) {
-      recompute(repository);
+      recompute(repository, touchedBranches(event));
+    }
+  }
+
+  private Collection<String> touchedBranches(PostReceiveRepositoryHookEvent event) {
+    HookContext context = event.getContext();
+    if (context != null && context.isFeatureSupported(HookFeature.BRANCH_PROVIDER)) {
+      return context.getBranchProvider().getCreatedOrModified();
     }
+    return Collections.emptyList();
   }
 
   @Subscribe
   public void detectRepositoryChanges(RepositoryEvent event) {
+    // every change of a repository (e.g. its name or description) changes the result of getRepositories
+    version.incrementAndGet();
     switch (event.getEventType()) {
       case DELETE:
-        repositoryInformation.remove(event.getItem().getId());
+        synchronized (pendingRecomputes) {
+          pendingRecomputes.remove(event.getItem().getId());
+          repositoryInformation.remove(event.getItem().getId());
+          wikiRepositoryIds.remove(event.getItem().getId());
+        }
         break;
       case CREATE:
         if (SmeagolRepositoryFilter.isPotentiallySmeagolRelevant(event.getItem())) {
-          recompute(event.getItem());
+          recompute(event.getItem(), Collections.emptyList());
         }
         break;
       default: // nothing to do
     }
   }
 
-  private void recompute(Repository repository) {
-    repositoryInformation.compute(repository.getId(), (id, oldInformation) -> computer.compute(repository));
+  @Subscribe
+  public void detectAuthorizationChanges(AuthorizationChangedEvent event) {
+    // the repositories visible for users may have changed
+    version.incrementAndGet();
+  }
+
+  /**
+   * Returns a version, that changes whenever the result of {@link #getRepositories()} may have
+   * changed. This can be used to answer conditional requests without building the result.
+   */
+  long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Schedules the recomputation of the information for the given repository. If a recomputation
+   * for this repository is already scheduled or running, the request is merged with it, so that at
+   * most one follow-up computation will be executed.
+   */
+  private void recompute(Repository repository, Collection<String> touchedBranches) {
+    boolean schedule;
+    synchronized (pendingRecomputes) {
+      PendingRecompute pending = pendingRecomputes.get(repository.getId());
+      if (pending == null) {
+        pendingRecomputes.put(repository.getId(), new PendingRecompute(repository, touchedBranches));
+        schedule = true;
+      } else {
+        LOG.trace("recomputation for repository {} already pending, merging request", repository);
+        pending.merge(repository, touchedBranches);
+        schedule = false;
+      }
+    }
+    if (schedule) {
+      recomputeExecutor.execute(() -> administrationContext.runAsAdmin(() -> runRecomputes(repository.getId())));
+    }
+  }
+
+  private void updateWikiRepositoryIds(String repositoryId, RepositoryInformation information) {
+    if (information.isWikiEnabled()) {
+      wikiRepositoryIds.add(repositoryId);
+    } else {
+      wikiRepositoryIds.remove(repositoryId);
+    }
+  }
+
+  private void runRecomputes(String repositoryId) {
+    PendingRecompute recompute = nextRecompute(repositoryId);
+    while (recompute != null) {
+      try {
+        RepositoryInformation information = computer.compute(recompute.repository, recompute.touchedBranches);
+        synchronized (pendingRecomputes) {
+          // do not resurrect information for repositories deleted in the meantime
+          if (pendingRecomputes.containsKey(repositoryId)) {
+            repositoryInformation.put(repositoryId, information);
+            updateWikiRepositoryIds(repositoryId, information);
+            version.incrementAndGet();
+          }
+        }
+      } catch (Exception e) {
+        LOG.warn("Could not recompute smeagol information for repository {}", recompute.repository, e);
+      }
+      recompute = nextRecompute(repositoryId);
+    }
+  }
+
+  private PendingRecompute nextRecompute(String repositoryId) {
+    synchronized (pendingRecomputes) {
+      PendingRecompute pending = pendingRecomputes.get(repositoryId);
+      if (pending == null) {
+        return null;
+      }
+      if (!pending.dirty) {
+        pendingRecomputes.remove(repositoryId);
+        return null;
+      }
+      return pending.take();
+    }
   }
 
   /**
@@ -109,14 +263,96 @@ class SmeagolRepositoryStore implements Initable {
       .collect(toList());
   }
 
+  /**
+   * Returns the repositories with an enabled wiki (sorted by namespace and name). Once the
+   * initialization is finished, only the repositories known to be wikis are touched.
+   */
+  List<SmeagolRepositoryInformation> getWikiRepositories() {
+    if (awaitInitialization) {
+      waitForInitialization();
+    }
+    if (!isInitialized()) {
+      return getRepositories().stream().filter(SmeagolRepositoryInformation::isWikiEnabled).collect(toList());
+    }
+    return wikiRepositoryIds
+      .stream()
+      .filter(id -> RepositoryPermissions.read(id).isPermitted())
+      .map(repositoryManager::get)
+      .filter(Objects::nonNull)
+      .sorted(createComparator())
+      .map(this::getFor)
+      .filter(SmeagolRepositoryInformation::isWikiEnabled)
+      .collect(toList());
+  }
+
+  /**
+   * Returns the requested page of the repositories (sorted by namespace and name), optionally
+   * restricted to those with an enabled wiki.
+   */
+  PageResult<SmeagolRepositoryInformation> getRepositories(boolean wikiEnabledOnly, int pageNumber, int pageSize) {
+    PageResult<Repository> page = repositoryManager.getPage(createFilter(wikiEnabledOnly), createComparator(), pageNumber, pageSize);
+    return new PageResult<>(
+      page.getEntities().stream().map(this::getFor).collect(toList()),
+      page.getOverallCount()
+    );
+  }
+
+  /**
+   * Returns the repositories (sorted by namespace and name) as a lazy stream, so that the
+   * information is created only when the stream is consumed.
+   */
+  Stream<SmeagolRepositoryInformation> streamRepositories(boolean wikiEnabledOnly) {
+    return repositoryManager.getAll(createFilter(wikiEnabledOnly), createComparator())
+      .stream()
+      .map(this::getFor);
+  }
+
+  private Predicate<Repository> createFilter(boolean wikiEnabledOnly) {
+    if (wikiEnabledOnly && isInitialized()) {
+      return repository -> wikiRepositoryIds.contains(repository.getId());
+    }
+    if (wikiEnabledOnly) {
+      return repository -> SmeagolRepositoryFilter.isPotentiallySmeagolRelevant(repository)
+        && getFor(repository).isWikiEnabled();
+    }
+    return SmeagolRepositoryFilter::isPotentiallySmeagolRelevant;
+  }
+
+  /**
+   * Returns the information for the given repository, if it is already known. Otherwise, the
+   * computation is scheduled in the background and an empty optional is returned. While the
+   * initialization, that is awaited, is still running, nothing is scheduled, because the initializer
+   * computes the information for all repositories anyway. In contrast to
+   * {@link #getFor(Repository)}, this never blocks.
+   */
+  Optional<RepositoryInformation> findFor(Repository repository) {
+    RepositoryInformation information = repositoryInformation.get(repository.getId());
+    if (information == null && (!awaitInitialization || isInitialized())) {
+      LOG.trace("no smeagol information for repository {} available yet, scheduling computation", repository);
+      recompute(repository, Collections.emptyList());
+    }
+    return Optional.ofNullable(information);
+  }
+
   SmeagolRepositoryInformation getFor(Repository repository) {
-    waitForInitialization();
+    if (awaitInitialization) {
+      waitForInitialization();
+    }
     return new SmeagolRepositoryInformation(
       repository,
-      repositoryInformation.computeIfAbsent(repository.getId(), id -> computer.compute(repository))
+      // information computed on demand does not change the result for any caller, so the version stays
+      repositoryInformation.computeIfAbsent(repository.getId(), id -> {
+        RepositoryInformation information = computer.compute(repository);
+        updateWikiRepositoryIds(id, information);
+        return information;
+      })
     );
   }
 
+  private boolean isInitialized() {
+    return initializeLatch.getCount() == 0;
+  }
+
   private void waitForInitialization() {
     try {
       initializeLatch.await();
@@ -127,13 +363,49 @@ class SmeagolRepositoryStore implements Initable {
   }
 
   private void init() {
+    if (awaitInitialization) {
+      initializeAndWait();
+    } else {
+      initializeInBackground();
+    }
+  }
+
+  private void initializeInBackground() {
+    ExecutorService executorService = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("smeagol-initialization").setDaemon(true).build()
+    );
+    executorService.execute(() -> administrationContext.runAsAdmin(() -> {
+      try {
+        LOG.info("Starting background initialization of smeagol repository information");
+        // information computed on demand or after a change in the meantime is more recent
+        informationInitializer.initialize((id, information) -> {
+          if (repositoryInformation.putIfAbsent(id, information) == null) {
+            updateWikiRepositoryIds(id, information);
+            version.incrementAndGet();
+          }
+        });
+      } finally {
+        LOG.info("Finished background initialization of smeagol repository information");
+        initializeLatch.countDown();
+      }
+    }));
+    executorService.shutdown();
+  }
+
+  private void initializeAndWait() {
     ExecutorService executorService = Executors.newSingleThreadExecutor();
     try {
       LOG.info("Starting initialization of smeagol repository information");
       executorService
         .submit(informationInitializer)
         .get()
-        .forEach(repositoryInformation::put);
+        .forEach((id, information) -> {
+          // information recomputed after a change in the meantime is more recent
+          if (repositoryInformation.putIfAbsent(id, information) == null) {
+            updateWikiRepositoryIds(id, information);
+          }
+        });
+      version.incrementAndGet();
     } catch (InterruptedException e) {
       LOG.warn("Got interrupted while initializing repository information", e);
       // Restore interrupted state...
@@ -147,6 +419,31 @@ class SmeagolRepositoryStore implements Initable {
     }
   }
 
+  private static class PendingRecompute {
+
+    private Repository repository;
+    private final Set<String> touchedBranches = new HashSet<>();
+    private boolean dirty = true;
+
+    private PendingRecompute(Repository repository, Collection<String> touchedBranches) {
+      this.repository = repository;
+      this.touchedBranches.addAll(touchedBranches);
+    }
+
+    private void merge(Repository repository, Collection<String> touchedBranches) {
+      this.repository = repository;
+      this.touchedBranches.addAll(touchedBranches);
+      this.dirty = true;
+    }
+
+    private PendingRecompute take() {
+      PendingRecompute recompute = new PendingRecompute(repository, touchedBranches);
+      touchedBranches.clear();
+      dirty = false;
+      return recompute;
+    }
+  }
+
   private Comparator<Repository> createComparator() {
     return Comparables.comparator(Repository.class, "namespace").thenComparing(Comparables.comparator(Repository.class, "name"));
   }
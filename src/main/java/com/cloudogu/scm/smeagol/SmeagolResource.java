@@ -16,61 +16,194 @@
 
 package com.cloudogu.scm.smeagol;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
 import de.otto.edison.hal.Embedded;
 import de.otto.edison.hal.HalRepresentation;
+import de.otto.edison.hal.Links;
+import org.apache.shiro.SecurityUtils;
+import sonia.scm.PageResult;
 import sonia.scm.security.AllowAnonymousAccess;
 
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static de.otto.edison.hal.Link.link;
 import static de.otto.edison.hal.Links.linkingTo;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 
 @AllowAnonymousAccess
 @Path("v2/smeagol/")
 public class SmeagolResource {
 
+  private static final String VARY = "Authorization, Cookie";
+
   private final SmeagolRepositoryStore store;
   private final SmeagolLinkBuilder smeagolLinkBuilder;
   private final SmeagolConfiguration configuration;
   private final SmeagolConfigurationDtoMapper configurationMapper;
   private final SmeagolRepositoryInformationDtoMapper informationMapper;
+  private final ObjectMapper objectMapper;
 
   @Inject
   SmeagolResource(SmeagolRepositoryStore store,
                   SmeagolLinkBuilder smeagolLinkBuilder,
                   SmeagolConfiguration configuration,
                   SmeagolConfigurationDtoMapper configurationMapper,
-                  SmeagolRepositoryInformationDtoMapper informationMapper) {
+                  SmeagolRepositoryInformationDtoMapper informationMapper,
+                  ObjectMapper objectMapper) {
     this.store = store;
     this.smeagolLinkBuilder = smeagolLinkBuilder;
     this.configuration = configuration;
     this.configurationMapper = configurationMapper;
     this.informationMapper = informationMapper;
+    this.objectMapper = objectMapper;
   }
 
+  /**
+   * Returns the smeagol relevant repositories. Without a <code>pageSize</code> all repositories are
+   * returned at once. With <code>stream=true</code>, the repositories are written to the response
+   * one after another, without building the complete representation in memory first.
+   */
   @GET
   @Path("repositories")
   @Produces("application/json")
-  public HalRepresentation loadRepositories(@QueryParam("wikiEnabled") boolean smeagolOnly) {
-    List<SmeagolRepositoryInformation> repositories = store.getRepositories();
-    if (smeagolOnly) {
-      repositories = repositories.stream().filter(SmeagolRepositoryInformation::isWikiEnabled).collect(toList());
+  public Response loadRepositories(@Context Request request,
+                                   @QueryParam("wikiEnabled") boolean smeagolOnly,
+                                   @QueryParam("page") @DefaultValue("0") @Min(0) int page,
+                                   @QueryParam("pageSize") @DefaultValue("0") @Min(0) int pageSize,
+                                   @QueryParam("stream") boolean stream) {
+    // the version is read before the response is built, so the response is at least as recent as its tag
+    EntityTag entityTag = createEntityTag(smeagolOnly, page, pageSize, stream);
+    CacheControl cacheControl = createCacheControl();
+    Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+    if (notModified != null) {
+      return notModified.cacheControl(cacheControl).header(HttpHeaders.VARY, VARY).build();
+    }
+    Object entity;
+    if (stream) {
+      entity = streamRepositories(smeagolOnly);
+    } else if (pageSize > 0) {
+      entity = createPage(smeagolOnly, page, pageSize);
+    } else {
+      entity = createCollection(smeagolOnly);
     }
+    return Response.ok(entity).tag(entityTag).cacheControl(cacheControl).header(HttpHeaders.VARY, VARY).build();
+  }
+
+  /**
+   * The tag is derived from the version of the store and a digest of the current user (because the
+   * visible repositories depend on the permissions), the configuration and the query parameters.
+   */
+  private EntityTag createEntityTag(boolean smeagolOnly, int page, int pageSize, boolean stream) {
+    long version = store.getVersion();
+    Object principal = SecurityUtils.getSubject().getPrincipal();
+    SmeagolConfiguration.Config config = configuration.get();
+    String variant = Hashing.sha256()
+      .newHasher()
+      .putString(String.valueOf(principal), UTF_8)
+      .putByte((byte) 0)
+      .putString(Strings.nullToEmpty(config.getSmeagolUrl()), UTF_8)
+      .putByte((byte) 0)
+      .putBoolean(config.isEnabled())
+      .putBoolean(config.isNavLinkEnabled())
+      .putBoolean(smeagolOnly)
+      .putInt(page)
+      .putInt(pageSize)
+      .putBoolean(stream)
+      .hash()
+      .toString();
+    return new EntityTag(version + "-" + variant);
+  }
+
+  /**
+   * The result depends on the user, so it must not be stored by shared caches, and it has to be
+   * revalidated with the entity tag before it is used again.
+   */
+  private CacheControl createCacheControl() {
+    CacheControl cacheControl = new CacheControl();
+    cacheControl.setPrivate(true);
+    cacheControl.setNoCache(true);
+    return cacheControl;
+  }
+
+  private HalRepresentation createCollection(boolean smeagolOnly) {
+    List<SmeagolRepositoryInformation> repositories = smeagolOnly ? store.getWikiRepositories() : store.getRepositories();
     return new HalRepresentation(
       linkingTo().single(link("self", smeagolLinkBuilder.getRepositoriesLink())).build(),
       Embedded.embedded("repositories", repositories.stream().map(informationMapper::map).collect(toList()))
     );
   }
 
+  private HalRepresentation createPage(boolean smeagolOnly, int page, int pageSize) {
+    PageResult<SmeagolRepositoryInformation> result = store.getRepositories(smeagolOnly, page, pageSize);
+    int pageTotal = (result.getOverallCount() + pageSize - 1) / pageSize;
+    Links.Builder links = linkingTo()
+      .single(link("self", smeagolLinkBuilder.getRepositoriesLink(smeagolOnly, page, pageSize)))
+      .single(link("first", smeagolLinkBuilder.getRepositoriesLink(smeagolOnly, 0, pageSize)));
+    if (page > 0) {
+      links.single(link("prev", smeagolLinkBuilder.getRepositoriesLink(smeagolOnly, page - 1, pageSize)));
+    }
+    if (page + 1 < pageTotal) {
+      links.single(link("next", smeagolLinkBuilder.getRepositoriesLink(smeagolOnly, page + 1, pageSize)));
+    }
+    links.single(link("last", smeagolLinkBuilder.getRepositoriesLink(smeagolOnly, Math.max(0, pageTotal - 1), pageSize)));
+    return new SmeagolRepositoryCollectionDto(
+      links.build(),
+      Embedded.embedded("repositories", result.getEntities().stream().map(informationMapper::map).collect(toList())),
+      page,
+      pageTotal
+    );
+  }
+
+  private StreamingOutput streamRepositories(boolean smeagolOnly) {
+    Links links = linkingTo().single(link("self", smeagolLinkBuilder.getRepositoriesLink())).build();
+    return output -> {
+      try (Stream<SmeagolRepositoryInformation> repositories = store.streamRepositories(smeagolOnly)) {
+        writeRepositories(output, links, repositories.iterator());
+      }
+    };
+  }
+
+  private void writeRepositories(OutputStream output, Links links, Iterator<SmeagolRepositoryInformation> repositories) throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.writeStartObject();
+      generator.writeObjectField("_links", links);
+      generator.writeObjectFieldStart("_embedded");
+      generator.writeArrayFieldStart("repositories");
+      while (repositories.hasNext()) {
+        generator.writeObject(informationMapper.map(repositories.next()));
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+  }
+
   @GET
   @Path("configuration")
   @Produces("application/json")
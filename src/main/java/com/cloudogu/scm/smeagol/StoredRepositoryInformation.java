@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import sonia.scm.repository.Branch;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Persisted form of {@link RepositoryInformation} together with the branch heads the information
+ * has been computed from.
+ */
+@Data
+@XmlRootElement(name = "smeagol-repository-information")
+@NoArgsConstructor
+@AllArgsConstructor
+@XmlAccessorType(XmlAccessType.FIELD)
+public class StoredRepositoryInformation {
+
+  private String markerFile;
+  private String defaultBranch;
+  private boolean wikiEnabled;
+  @XmlElement(name = "branch")
+  private List<StoredBranch> branches = new ArrayList<>();
+
+  static StoredRepositoryInformation of(RepositoryInformation information, List<Branch> branches, Map<String, Boolean> results) {
+    return new StoredRepositoryInformation(
+      RepositoryInformationComputer.SMEAGOL_MARKER_FILE,
+      information.getDefaultBranch(),
+      information.isWikiEnabled(),
+      branches
+        .stream()
+        .map(branch -> new StoredBranch(branch.getName(), branch.getRevision(), results.get(branch.getName())))
+        .collect(toList())
+    );
+  }
+
+  /**
+   * Returns <code>true</code>, if this information has been computed from exactly the given
+   * branches with their current head revisions.
+   */
+  boolean isDerivedFrom(List<Branch> currentBranches, String currentDefaultBranch) {
+    if (!RepositoryInformationComputer.SMEAGOL_MARKER_FILE.equals(markerFile)
+      || !Objects.equals(defaultBranch, currentDefaultBranch)
+      || branches.size() != currentBranches.size()) {
+      return false;
+    }
+    Map<String, String> storedRevisions = new HashMap<>();
+    for (StoredBranch branch : branches) {
+      storedRevisions.put(branch.getName(), branch.getRevision());
+    }
+    return currentBranches
+      .stream()
+      .allMatch(branch -> Objects.equals(storedRevisions.get(branch.getName()), branch.getRevision()));
+  }
+
+  /**
+   * Returns the stored results of the marker file lookup for all branches, that have neither been
+   * touched nor changed their head revision since this information has been computed.
+   */
+  Map<String, Boolean> reusableResults(List<Branch> currentBranches, Collection<String> touchedBranches) {
+    Map<String, Boolean> results = new HashMap<>();
+    if (!RepositoryInformationComputer.SMEAGOL_MARKER_FILE.equals(markerFile)) {
+      return results;
+    }
+    Map<String, StoredBranch> storedBranches = new HashMap<>();
+    for (StoredBranch branch : branches) {
+      storedBranches.put(branch.getName(), branch);
+    }
+    for (Branch branch : currentBranches) {
+      StoredBranch storedBranch = storedBranches.get(branch.getName());
+      if (storedBranch != null
+        && storedBranch.getSmeagolFile() != null
+        && !touchedBranches.contains(branch.getName())
+        && Objects.equals(storedBranch.getRevision(), branch.getRevision())) {
+        results.put(branch.getName(), storedBranch.getSmeagolFile());
+      }
+    }
+    return results;
+  }
+
+  RepositoryInformation toRepositoryInformation() {
+    return new RepositoryInformation(defaultBranch, wikiEnabled);
+  }
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @XmlAccessorType(XmlAccessType.FIELD)
+  public static class StoredBranch {
+    private String name;
+    private String revision;
+    /**
+     * Whether the marker file exists in this branch or <code>null</code>, if this has not been checked.
+     */
+    private Boolean smeagolFile;
+  }
+}
@@ -18,6 +18,8 @@ package com.cloudogu.scm.smeagol.search;
 
 import com.cloudogu.scm.smeagol.SmeagolRepositoryFilter;
 import com.github.legman.Subscribe;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.plugin.Extension;
@@ -32,6 +34,14 @@ import sonia.scm.web.security.AdministrationContext;
 import jakarta.inject.Inject;
 import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.ServletContextListener;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
 
 @Extension
 @SuppressWarnings("UnstableApiUsage")
@@ -39,31 +49,80 @@ public class IndexListener implements ServletContextListener {
 
   private static final Logger LOG = LoggerFactory.getLogger(IndexListener.class);
 
+  private static final int STARTUP_CHECK_THREAD_COUNT = Math.max(1, Integer.getInteger(
+    "com.cloudogu.scm.smeagol.startupCheck.threads",
+    Math.min(4, Runtime.getRuntime().availableProcessors())
+  ));
+
   private final AdministrationContext administrationContext;
   private final RepositoryManager repositoryManager;
   private final SearchEngine searchEngine;
+  private final StaleIndexDetector staleIndexDetector;
+
+  @VisibleForTesting
+  Executor startupCheckExecutor = command -> new ThreadFactoryBuilder()
+    .setNameFormat("smeagol-index-check")
+    .setDaemon(true)
+    .build()
+    .newThread(command)
+    .start();
+
+  @VisibleForTesting
+  Supplier<ExecutorService> branchLookupExecutorFactory = () -> Executors.newFixedThreadPool(
+    STARTUP_CHECK_THREAD_COUNT,
+    new ThreadFactoryBuilder().setNameFormat("smeagol-index-check-%d").setDaemon(true).build()
+  );
 
   @Inject
-  public IndexListener(AdministrationContext administrationContext, RepositoryManager repositoryManager, SearchEngine searchEngine) {
+  public IndexListener(AdministrationContext administrationContext, RepositoryManager repositoryManager, SearchEngine searchEngine, StaleIndexDetector staleIndexDetector) {
     this.administrationContext = administrationContext;
     this.repositoryManager = repositoryManager;
     this.searchEngine = searchEngine;
+    this.staleIndexDetector = staleIndexDetector;
   }
 
+  /**
+   * Checks the index status of all repositories in the background and only submits index tasks
+   * for those repositories, whose index is not up to date with the default branch. The heads of
+   * the default branches are resolved on a small pool of threads and each stale repository is
+   * submitted as soon as it is found.
+   */
   @Override
   public void contextInitialized(ServletContextEvent servletContextEvent) {
-    administrationContext.runAsAdmin(() -> {
-      for (Repository repository : repositoryManager.getAll()) {
-        LOG.debug("startup check if index of repository {} requires update", repository);
-        submit(repository);
-      }
-    });
+    startupCheckExecutor.execute(() -> administrationContext.runAsAdmin(this::checkOnStartup));
+  }
+
+  private void checkOnStartup() {
+    List<Repository> repositories = repositoryManager.getAll()
+      .stream()
+      .filter(SmeagolRepositoryFilter::isPotentiallySmeagolRelevant)
+      .collect(toList());
+    LOG.debug("startup check if index of {} repositories requires update", repositories.size());
+    ExecutorService branchLookupExecutor = branchLookupExecutorFactory.get();
+    try {
+      staleIndexDetector.findStale(
+        repositories,
+        command -> branchLookupExecutor.execute(() -> administrationContext.runAsAdmin(command::run)),
+        this::submitStale
+      );
+    } catch (Exception e) {
+      LOG.warn("startup check of index failed, submitting update for all repositories", e);
+      repositories.forEach(this::submit);
+    } finally {
+      // lets the pending branch lookups finish, but frees the threads afterwards
+      branchLookupExecutor.shutdown();
+    }
+  }
+
+  private void submitStale(Repository repository) {
+    LOG.debug("index of repository {} is stale on startup", repository);
+    submit(repository);
   }
 
   @Subscribe
   public void handle(PostReceiveRepositoryHookEvent event) {
     LOG.debug("received hook event for repository {}, update index if necessary", event.getRepository());
-    submit(event.getRepository());
+    submit(event.getRepository(), Instant.now());
   }
 
   @Subscribe
@@ -92,10 +151,14 @@ public class IndexListener implements ServletContextListener {
   }
 
   private void submit(Repository repository) {
+    submit(repository, null);
+  }
+
+  private void submit(Repository repository, Instant pushedAt) {
     if (SmeagolRepositoryFilter.isPotentiallySmeagolRelevant(repository)) {
       searchEngine.forType(SmeagolDocument.class)
         .forResource(repository)
-        .update(new IndexerTask(repository));
+        .update(new IndexerTask(repository, pushedAt));
     } else {
       LOG.debug("repository {} is not relevant for smeagol, skipping", repository);
     }
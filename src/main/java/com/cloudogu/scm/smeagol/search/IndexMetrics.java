@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import com.github.legman.Subscribe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import sonia.scm.HandlerEventType;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.time.Duration;
+
+/**
+ * Metrics of the search index updates. All meters but the push latency are tagged with the repository,
+ * so that the repositories which dominate the indexing costs can be found.
+ * The meters of a repository are removed, when the repository is deleted or renamed.
+ */
+@Extension
+@Singleton
+public class IndexMetrics {
+
+  static final String TAG_REPOSITORY = "repository";
+  static final String TAG_TYPE = "type";
+
+  static final String TYPE_FULL = "full";
+  static final String TYPE_CHANGES = "changes";
+  static final String TYPE_INCREMENTAL = "incremental";
+
+  private static final Duration MAXIMUM_EXPECTED_LATENCY = Duration.ofMinutes(10);
+
+  private final MeterRegistry registry;
+
+  @Inject
+  public IndexMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Time spent to collect the paths of the documents to store or delete.
+   */
+  Timer collection(Repository repository) {
+    return timer("smeagol.index.collection", "Time to collect the paths of smeagol documents", repository);
+  }
+
+  /**
+   * Time spent to read and decode the content of documents.
+   */
+  Timer read(Repository repository) {
+    return timer("smeagol.index.read", "Time to read smeagol documents from the repository", repository);
+  }
+
+  /**
+   * Time spent to write documents to the index.
+   */
+  Timer write(Repository repository) {
+    return timer("smeagol.index.write", "Time to write smeagol documents to the index", repository);
+  }
+
+  /**
+   * Time from a push until its changes are searchable. This includes the time the index task
+   * waited in the queue of the search engine. The histogram is not tagged with the repository,
+   * because its buckets would be multiplied by the number of repositories.
+   */
+  Timer pushLatency() {
+    return Timer.builder("smeagol.index.latency")
+      .description("Time from a push until the changes are searchable in smeagol")
+      .publishPercentileHistogram()
+      .maximumExpectedValue(MAXIMUM_EXPECTED_LATENCY)
+      .register(registry);
+  }
+
+  Counter documentsStored(Repository repository) {
+    return counter("smeagol.index.documents.stored", "Smeagol documents stored in the index", repository);
+  }
+
+  Counter documentsDeleted(Repository repository) {
+    return counter("smeagol.index.documents.deleted", "Smeagol documents deleted from the index", repository);
+  }
+
+  /**
+   * Number of indexed characters; the content is counted after decoding and truncation.
+   */
+  Counter content(Repository repository) {
+    return Counter.builder("smeagol.index.content")
+      .description("Characters of smeagol documents stored in the index")
+      .baseUnit("characters")
+      .tag(TAG_REPOSITORY, tag(repository))
+      .register(registry);
+  }
+
+  /**
+   * Number of index updates by type: {@link #TYPE_FULL} for a complete re-index, {@link #TYPE_CHANGES}
+   * for a re-index of changed documents and {@link #TYPE_INCREMENTAL} for updates of a push.
+   */
+  Counter updates(Repository repository, String type) {
+    return Counter.builder("smeagol.index.updates")
+      .description("Updates of the smeagol search index")
+      .tag(TAG_REPOSITORY, tag(repository))
+      .tag(TAG_TYPE, type)
+      .register(registry);
+  }
+
+  @Subscribe
+  public void handle(RepositoryEvent event) {
+    if (event.getEventType() == HandlerEventType.DELETE) {
+      remove(event.getItem());
+    } else if (event.getEventType() == HandlerEventType.MODIFY && isRenamed(event)) {
+      remove(event.getOldItem());
+    }
+  }
+
+  private boolean isRenamed(RepositoryEvent event) {
+    return event.getOldItem() != null
+      && !event.getOldItem().getNamespaceAndName().equals(event.getItem().getNamespaceAndName());
+  }
+
+  private void remove(Repository repository) {
+    for (Meter meter : Search.in(registry).tag(TAG_REPOSITORY, tag(repository)).meters()) {
+      registry.remove(meter);
+    }
+  }
+
+  private Timer timer(String name, String description, Repository repository) {
+    return Timer.builder(name)
+      .description(description)
+      .tag(TAG_REPOSITORY, tag(repository))
+      .register(registry);
+  }
+
+  private Counter counter(String name, String description, Repository repository) {
+    return Counter.builder(name)
+      .description(description)
+      .tag(TAG_REPOSITORY, tag(repository))
+      .register(registry);
+  }
+
+  private String tag(Repository repository) {
+    return repository.getNamespaceAndName().toString();
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import jakarta.inject.Singleton;
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Threads which read documents for the index. The pool is shared by all index tasks, so that the
+ * number of reading threads is bounded no matter how many repositories are indexed at once.
+ * The threads are stopped, when the injector of SCM-Manager is shut down or restarted.
+ */
+@Singleton
+public class IndexReaderExecutor implements Closeable {
+
+  static final int READER_COUNT = Integer.getInteger(
+    "com.cloudogu.scm.smeagol.indexReaders",
+    Math.min(4, Runtime.getRuntime().availableProcessors())
+  );
+
+  private final ExecutorService executorService = Executors.newFixedThreadPool(
+    Math.max(1, READER_COUNT),
+    new ThreadFactoryBuilder()
+      .setNameFormat("smeagol-index-reader-%d")
+      .setDaemon(true)
+      .build()
+  );
+
+  Future<?> submit(Runnable reader) {
+    return executorService.submit(reader);
+  }
+
+  @Override
+  public void close() {
+    executorService.shutdownNow();
+  }
+}
@@ -16,7 +16,6 @@
 
 package com.cloudogu.scm.smeagol.search;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import sonia.scm.xml.XmlInstantAdapter;
@@ -30,7 +29,6 @@ import java.time.Instant;
 @Data
 @XmlRootElement
 @NoArgsConstructor
-@AllArgsConstructor
 @XmlAccessorType(XmlAccessType.FIELD)
 public class IndexStatus {
 
@@ -41,6 +39,18 @@ public class IndexStatus {
   @XmlJavaTypeAdapter(XmlInstantAdapter.class)
   private Instant lastUpdate;
   private int version;
+  /**
+   * Milliseconds from the last push until its changes were searchable or <code>null</code>, if no
+   * push has been indexed yet.
+   */
+  private Long pushLatency;
+
+  public IndexStatus(String revision, String branch, Instant lastUpdate, int version) {
+    this.revision = revision;
+    this.branch = branch;
+    this.lastUpdate = lastUpdate;
+    this.version = version;
+  }
 
   static IndexStatus createEmpty() {
     return new IndexStatus(EMPTY, EMPTY, Instant.now(), SmeagolDocument.VERSION);
@@ -23,7 +23,9 @@ import sonia.scm.store.DataStoreFactory;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
 import java.util.Optional;
 
 @Singleton
@@ -43,15 +45,35 @@ public class IndexStatusStore {
   }
 
   public void update(Repository repository, Branch branch) {
-    store.put(repository.getId(), status(branch));
+    IndexStatus status = status(branch);
+    get(repository).map(IndexStatus::getPushLatency).ifPresent(status::setPushLatency);
+    store.put(repository.getId(), status);
   }
 
   private IndexStatus status(Branch branch) {
     return new IndexStatus(branch.getRevision(), branch.getName(), Instant.now(), SmeagolDocument.VERSION);
   }
 
+  /**
+   * Stores the time from a push until its changes were searchable. Nothing is stored, if the
+   * repository has no index status.
+   */
+  void updatePushLatency(Repository repository, Duration latency) {
+    get(repository).ifPresent(status -> {
+      status.setPushLatency(latency.toMillis());
+      store.put(repository.getId(), status);
+    });
+  }
+
   Optional<IndexStatus> get(Repository repository) {
     return store.getOptional(repository.getId());
   }
+
+  /**
+   * Returns the index status of all repositories, mapped by the id of the repository.
+   */
+  public Map<String, IndexStatus> getAll() {
+    return store.getAll();
+  }
 }
 
@@ -17,12 +17,18 @@
 package com.cloudogu.scm.smeagol.search;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
 import lombok.extern.slf4j.Slf4j;
 import sonia.scm.repository.Branch;
 import sonia.scm.repository.Repository;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 class IndexSyncWorker {
@@ -31,6 +37,8 @@ class IndexSyncWorker {
   private final UpdatePathCollector updatePathCollector;
   private final RevisionPathCollector revisionPathCollector;
   private final IndexStatusStore indexStatusStore;
+  private final IndexedPathStore indexedPathStore;
+  private final IndexMetrics metrics;
   private final Indexer indexer;
 
   private final Repository repository;
@@ -40,6 +48,8 @@ class IndexSyncWorker {
       indexingContext.getUpdatePathCollector(),
       indexingContext.getRevisionPathCollector(),
       indexingContext.getIndexStatusStore(),
+      indexingContext.getIndexedPathStore(),
+      indexingContext.getMetrics(),
       indexingContext.getIndexer(),
       indexingContext.getRepository()
     );
@@ -51,6 +61,8 @@ class IndexSyncWorker {
     UpdatePathCollector updatePathCollector,
     RevisionPathCollector revisionPathCollector,
     IndexStatusStore indexStatusStore,
+    IndexedPathStore indexedPathStore,
+    IndexMetrics metrics,
     Indexer indexer,
     Repository repository
   ) {
@@ -58,17 +70,24 @@ class IndexSyncWorker {
     this.updatePathCollector = updatePathCollector;
     this.revisionPathCollector = revisionPathCollector;
     this.indexStatusStore = indexStatusStore;
+    this.indexedPathStore = indexedPathStore;
+    this.metrics = metrics;
     this.indexer = indexer;
     this.repository = repository;
   }
 
-  public void ensureIndexIsUpToDate() throws IOException {
+  /**
+   * Brings the index up to date with the default branch.
+   *
+   * @return <code>true</code>, if the index has been updated for a revision with a smeagol configuration
+   */
+  public boolean ensureIndexIsUpToDate() throws IOException {
     Optional<IndexStatus> status = indexStatusStore.get(repository);
     Optional<Branch> defaultBranch = defaultBranchResolver.resolve();
     if (!defaultBranch.isPresent()) {
       log.warn("no default branch found for repository {}", repository);
       emptyRepository();
-      return;
+      return false;
     }
     if (status.isPresent()) {
       IndexStatus indexStatus = status.get();
@@ -77,57 +96,142 @@ class IndexSyncWorker {
           "found index of repository {} in version {} required is {}, trigger reindex",
           repository, indexStatus.getVersion(), SmeagolDocument.VERSION
         );
-        reIndex(defaultBranch.get());
+        return reIndex(defaultBranch.get());
       } else if (indexStatus.isEmpty()) {
         log.debug(
           "no index status found for repository {}, trigger reindex",
           repository
         );
-        reIndex(defaultBranch.get());
+        return reIndex(defaultBranch.get());
       } else if (!indexStatus.getBranch().equals(defaultBranch.get().getName())) {
         log.debug(
           "default branch changed from {} to {} in repository {}, trigger reindex",
           indexStatus.getBranch(), defaultBranch.get().getName(), repository
         );
-        reIndex(defaultBranch.get());
+        return reIndex(indexStatus.getRevision(), defaultBranch.get());
       } else {
-        ensureIndexIsUpToDate(indexStatus.getRevision(), defaultBranch.get());
+        return ensureIndexIsUpToDate(indexStatus.getRevision(), defaultBranch.get());
       }
     } else {
       log.debug("no index status present for repository {}, trigger reindex", repository);
-      reIndex(defaultBranch.get());
+      return reIndex(defaultBranch.get());
     }
   }
 
-  private void ensureIndexIsUpToDate(String from, Branch to) throws IOException {
+  private boolean ensureIndexIsUpToDate(String from, Branch to) throws IOException {
     if (from.equals(to.getRevision())) {
       log.debug("index of repository {} is up to date", repository);
-      return;
+      return false;
     }
 
     log.debug("start updating index of repository {} from {} to {}", repository, from, to);
 
-    updatePathCollector.collect(from, to.getRevision());
+    collectChanges(from, to);
 
-    if (updatePathCollector.isConfigurationChanged()) {
-      reIndex(to);
+    if (updatePathCollector.isSmeagolDirectoryChanged()) {
+      log.debug("smeagol directory of repository {} changed, re indexing changed documents", repository);
+      Optional<Set<String>> indexedPaths = indexedPathStore.get(repository);
+      if (indexedPaths.isPresent()) {
+        return reIndexChanges(to, indexedPaths.get());
+      } else {
+        return reIndex(to);
+      }
     } else {
-      updateIndex(to, updatePathCollector);
+      return updateIndex(to, updatePathCollector);
     }
   }
 
-  private void updateIndex(Branch branch, PathCollector collector) throws IOException {
+  private boolean updateIndex(Branch branch, PathCollector collector) throws IOException {
     indexer.delete(collector.getPathToDelete());
     indexer.store(branch, collector.getPathToStore());
 
+    indexedPathStore.update(repository, collector.getPathToDelete(), collector.getPathToStore());
+    indexStatusStore.update(repository, branch);
+    return recordUpdate(collector, IndexMetrics.TYPE_INCREMENTAL);
+  }
+
+  private void collectChanges(String from, Branch to) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    updatePathCollector.collect(from, to.getRevision());
+    recordCollection(updatePathCollector, stopwatch);
+  }
+
+  private void collectRevision(Branch branch) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    revisionPathCollector.collect(branch.getRevision());
+    recordCollection(revisionPathCollector, stopwatch);
+  }
+
+  /**
+   * Pushes to repositories without a smeagol configuration are processed as well, but they must
+   * neither show up in the metrics nor register meters for every repository of the instance.
+   */
+  private void recordCollection(PathCollector collector, Stopwatch stopwatch) {
+    if (collector.hasSmeagolConfiguration()) {
+      metrics.collection(repository).record(stopwatch.elapsed());
+    }
+  }
+
+  private boolean recordUpdate(PathCollector collector, String type) {
+    if (!collector.hasSmeagolConfiguration()) {
+      return false;
+    }
+    metrics.updates(repository, type).increment();
+    return true;
+  }
+
+  private boolean reIndex(String from, Branch to) throws IOException {
+    Optional<Set<String>> indexedPaths = indexedPathStore.get(repository);
+    if (indexedPaths.isEmpty()) {
+      return reIndex(to);
+    }
+    collectChanges(from, to);
+    return reIndexChanges(to, indexedPaths.get());
+  }
+
+  /**
+   * Re-indexes the documents of the given branch, but only stores documents which have not been
+   * indexed before or which have been changed since the indexed revision. Paths whose content is
+   * the same in both revisions are skipped. Indexed documents which no longer exist are deleted.
+   */
+  private boolean reIndexChanges(Branch branch, Set<String> indexedPaths) throws IOException {
+    if (!updatePathCollector.isComplete()) {
+      log.debug("could not collect changes for repository {}, falling back to complete re index", repository);
+      return reIndex(branch);
+    }
+
+    log.debug("start re indexing changed documents for repository {}", repository);
+    collectRevision(branch);
+    Collection<String> paths = revisionPathCollector.getPathToStore();
+    Set<String> changedPaths = new HashSet<>(updatePathCollector.getPathToStore());
+
+    Set<String> pathsToDelete = new HashSet<>(indexedPaths);
+    pathsToDelete.removeAll(paths);
+
+    Set<String> pathsToStore = new HashSet<>(paths);
+    pathsToStore.removeIf(path -> indexedPaths.contains(path) && !changedPaths.contains(path));
+
+    log.debug(
+      "re indexing repository {}: {} documents unchanged, {} to store, {} to delete",
+      repository, paths.size() - pathsToStore.size(), pathsToStore.size(), pathsToDelete.size()
+    );
+    indexer.delete(pathsToDelete);
+    indexer.store(branch, pathsToStore);
+
+    indexedPathStore.set(repository, paths);
     indexStatusStore.update(repository, branch);
+    return recordUpdate(revisionPathCollector, IndexMetrics.TYPE_CHANGES);
   }
 
-  private void reIndex(Branch defaultBranch) throws IOException {
+  private boolean reIndex(Branch defaultBranch) throws IOException {
     log.debug("start re indexing for repository {}", repository);
     indexer.deleteAll();
-    revisionPathCollector.collect(defaultBranch.getRevision());
-    updateIndex(defaultBranch, revisionPathCollector);
+    collectRevision(defaultBranch);
+    indexer.store(defaultBranch, revisionPathCollector.getPathToStore());
+
+    indexedPathStore.set(repository, revisionPathCollector.getPathToStore());
+    indexStatusStore.update(repository, defaultBranch);
+    return recordUpdate(revisionPathCollector, IndexMetrics.TYPE_FULL);
   }
 
   void reIndex() throws IOException {
@@ -140,9 +244,21 @@ class IndexSyncWorker {
     reIndex(defaultBranch.get());
   }
 
+  /**
+   * Records the time from the given push until now, after the index has been brought up to date
+   * with the push.
+   */
+  void recordPushLatency(Instant pushedAt) {
+    Duration latency = Duration.between(pushedAt, Instant.now());
+    log.debug("changes pushed to repository {} are searchable after {}", repository, latency);
+    metrics.pushLatency().record(latency);
+    indexStatusStore.updatePushLatency(repository, latency);
+  }
+
   private void emptyRepository() {
     log.debug("repository {} looks empty, delete all to clean up", repository);
     indexer.deleteAll();
+    indexedPathStore.remove(repository);
     indexStatusStore.empty(repository);
   }
 
@@ -26,6 +26,7 @@ import sonia.scm.search.Index;
 
 import jakarta.inject.Inject;
 import java.io.IOException;
+import java.time.Instant;
 
 @SuppressWarnings("UnstableApiUsage")
 public class IndexSyncer {
@@ -44,8 +45,18 @@ public class IndexSyncer {
   }
 
   public void ensureIndexIsUpToDate(Index<SmeagolDocument> index, Repository repository) {
+    ensureIndexIsUpToDate(index, repository, null);
+  }
+
+  /**
+   * Brings the index up to date and records the latency from the given push until the changes
+   * are searchable, if the update has been triggered by a push to a smeagol repository.
+   *
+   * @param pushedAt time of the push or <code>null</code>, if the update was not triggered by a push
+   */
+  public void ensureIndexIsUpToDate(Index<SmeagolDocument> index, Repository repository, Instant pushedAt) {
     try (RepositoryService repositoryService = repositoryServiceFactory.create(repository)) {
-     ensureIndexIsUpToDate(index, repositoryService);
+     ensureIndexIsUpToDate(index, repositoryService, pushedAt);
     } catch (IOException e) {
       LOG.error("failed to update index or to check if an update is required for repository {}", repository, e);
     }
@@ -67,13 +78,16 @@ public class IndexSyncer {
     }
   }
 
-  private void ensureIndexIsUpToDate(Index<SmeagolDocument> index, RepositoryService repositoryService) throws IOException {
+  private void ensureIndexIsUpToDate(Index<SmeagolDocument> index, RepositoryService repositoryService, Instant pushedAt) throws IOException {
     Stopwatch sw = Stopwatch.createStarted();
     Indexer indexer = indexerFactory.create(index, repositoryService);
     try {
       LOG.trace("ensure index is up to date started for repository {}", repositoryService.getRepository());
       IndexSyncWorker worker = indexSyncWorkerFactory.create(repositoryService, indexer);
-      worker.ensureIndexIsUpToDate();
+      boolean updated = worker.ensureIndexIsUpToDate();
+      if (updated && pushedAt != null) {
+        worker.recordPushLatency(pushedAt);
+      }
     } finally {
       LOG.debug("ensure index is up to date operation for repository {} finished in {}", repositoryService.getRepository(), sw.stop());
     }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import sonia.scm.repository.Repository;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Remembers which paths are stored in the index for each repository, so that a reindex only has to
+ * touch the documents which have actually changed. The paths are kept in a store of the repository,
+ * so they are removed together with the repository. The entry is only written, if the set of paths
+ * has changed; an update of existing documents does not touch it.
+ */
+@Singleton
+public class IndexedPathStore {
+
+  private static final String STORE_NAME = "smeagol-search-paths";
+  private static final String ENTRY = "paths";
+
+  private final DataStoreFactory storeFactory;
+
+  @Inject
+  public IndexedPathStore(DataStoreFactory storeFactory) {
+    this.storeFactory = storeFactory;
+  }
+
+  Optional<Set<String>> get(Repository repository) {
+    return store(repository).getOptional(ENTRY).map(IndexedPaths::getPaths);
+  }
+
+  void set(Repository repository, Collection<String> paths) {
+    DataStore<IndexedPaths> store = store(repository);
+    Set<String> indexedPaths = new HashSet<>(paths);
+    boolean unchanged = store.getOptional(ENTRY).map(known -> known.getPaths().equals(indexedPaths)).orElse(false);
+    if (!unchanged) {
+      store.put(ENTRY, new IndexedPaths(indexedPaths));
+    }
+  }
+
+  /**
+   * Applies an incremental update to the remembered paths. If no paths are known for the repository,
+   * nothing is remembered, because the result would be incomplete.
+   */
+  void update(Repository repository, Collection<String> deletedPaths, Collection<String> storedPaths) {
+    DataStore<IndexedPaths> store = store(repository);
+    store.getOptional(ENTRY).ifPresent(known -> {
+      boolean removed = known.getPaths().removeAll(deletedPaths);
+      boolean added = known.getPaths().addAll(storedPaths);
+      if (removed || added) {
+        store.put(ENTRY, known);
+      }
+    });
+  }
+
+  void remove(Repository repository) {
+    store(repository).remove(ENTRY);
+  }
+
+  private DataStore<IndexedPaths> store(Repository repository) {
+    return storeFactory.withType(IndexedPaths.class).withName(STORE_NAME).forRepository(repository).build();
+  }
+}
@@ -16,49 +16,177 @@
 
 package com.cloudogu.scm.smeagol.search;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.repository.Branch;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryPermissions;
 import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
 import sonia.scm.search.Id;
 import sonia.scm.search.Index;
 
 import jakarta.inject.Inject;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("UnstableApiUsage")
 class Indexer {
 
   private static final Logger LOG = LoggerFactory.getLogger(Indexer.class);
 
+  private static final int BATCH_SIZE = Math.max(1, Integer.getInteger("com.cloudogu.scm.smeagol.indexBatchSize", 100));
+  private static final int QUEUE_CAPACITY = Math.max(1, Integer.getInteger("com.cloudogu.scm.smeagol.indexQueueSize", 4));
+
   private final SmeagolDocumentFactory smeagolDocumentFactory;
   private final Index<SmeagolDocument> index;
+  private final RepositoryServiceFactory repositoryServiceFactory;
   private final RepositoryService repositoryService;
+  private final IndexReaderExecutor readerExecutor;
+  private final IndexMetrics metrics;
   private final Repository repository;
 
+  @VisibleForTesting
+  int readerCount = IndexReaderExecutor.READER_COUNT;
+  @VisibleForTesting
+  int batchSize = BATCH_SIZE;
+
   @Inject
-  Indexer(SmeagolDocumentFactory smeagolDocumentFactory, Index<SmeagolDocument> index, RepositoryService repositoryService) {
+  Indexer(SmeagolDocumentFactory smeagolDocumentFactory,
+          Index<SmeagolDocument> index,
+          RepositoryServiceFactory repositoryServiceFactory,
+          RepositoryService repositoryService,
+          IndexReaderExecutor readerExecutor,
+          IndexMetrics metrics) {
     this.smeagolDocumentFactory = smeagolDocumentFactory;
     this.index = index;
+    this.repositoryServiceFactory = repositoryServiceFactory;
     this.repositoryService = repositoryService;
+    this.readerExecutor = readerExecutor;
+    this.metrics = metrics;
     this.repository = repositoryService.getRepository();
   }
 
+  /**
+   * Stores the documents for the given paths. If the paths span more than one batch, the documents
+   * are read by threads of the shared {@link IndexReaderExecutor} while the calling thread writes
+   * them to the index. The queue between readers and writer is bounded, so readers wait if the
+   * writer falls behind. Every reader uses a repository service of its own, because the services
+   * and their commands are not meant to be used by more than one thread at a time.
+   */
   void store(Branch branch, Collection<String> paths) throws IOException {
     if (paths.isEmpty()) {
       return;
     }
 
-    for (String path : paths) {
-      LOG.trace("store {} to index", path);
-      SmeagolDocument fileContent = smeagolDocumentFactory.create(repositoryService, branch, path);
-      index.store(id(path), permission(), fileContent);
+    String permission = permission();
+    if (readerCount <= 1 || paths.size() <= batchSize) {
+      for (List<String> batch : Iterables.partition(paths, batchSize)) {
+        LOG.trace("read batch of {} documents", batch.size());
+        write(permission, read(branch, batch));
+      }
+    } else {
+      storeConcurrently(branch, paths, permission);
+    }
+  }
+
+  private void storeConcurrently(Branch branch, Collection<String> paths, String permission) throws IOException {
+    Queue<List<String>> batches = new ConcurrentLinkedQueue<>();
+    Iterables.partition(paths, batchSize).forEach(batches::add);
+    int batchCount = batches.size();
+    int readers = Math.min(readerCount, batchCount);
+    LOG.trace("read {} batches with {} readers", batchCount, readers);
+
+    BlockingQueue<ReadResult> results = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    List<Future<?>> futures = new ArrayList<>(readers);
+    boolean completed = false;
+    try {
+      Subject subject = ThreadContext.getSubject();
+      for (int i = 0; i < readers; ++i) {
+        Runnable reader = () -> read(branch, batches, results);
+        futures.add(readerExecutor.submit(subject != null ? subject.associateWith(reader) : reader));
+      }
+      for (int i = 0; i < batchCount; ++i) {
+        write(permission, results.take().getDocuments());
+      }
+      completed = true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("got interrupted while storing documents of repository " + repository);
+    } finally {
+      if (!completed) {
+        // the writer has failed, so the remaining batches are of no use anymore
+        batches.clear();
+        futures.forEach(future -> future.cancel(true));
+      }
+    }
+  }
+
+  /**
+   * Reads batches until none are left. Every failure is handed to the writer, errors included,
+   * because the writer waits for a result of every batch.
+   */
+  @SuppressWarnings("java:S1181") // errors have to be handed over, too
+  private void read(Branch branch, Queue<List<String>> batches, BlockingQueue<ReadResult> results) {
+    try (RepositoryService readerService = repositoryServiceFactory.create(repository)) {
+      List<String> batch;
+      while ((batch = batches.poll()) != null) {
+        LOG.trace("read batch of {} documents", batch.size());
+        results.put(new ReadResult(read(readerService, branch, batch), null));
+      }
+    } catch (InterruptedException e) {
+      // the writer has given up, so there is no one left to hand the documents to
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      handOver(results, new ReadResult(null, e));
+    }
+  }
+
+  private void handOver(BlockingQueue<ReadResult> results, ReadResult result) {
+    try {
+      results.put(result);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
   }
 
+  private List<SmeagolDocument> read(Branch branch, List<String> batch) throws IOException {
+    return read(repositoryService, branch, batch);
+  }
+
+  private List<SmeagolDocument> read(RepositoryService service, Branch branch, List<String> batch) throws IOException {
+    long start = System.nanoTime();
+    List<SmeagolDocument> documents = smeagolDocumentFactory.create(service, branch, batch);
+    metrics.read(repository).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return documents;
+  }
+
+  private void write(String permission, List<SmeagolDocument> documents) {
+    long start = System.nanoTime();
+    long content = 0;
+    for (SmeagolDocument document : documents) {
+      LOG.trace("store {} to index", document.getPath());
+      index.store(id(document.getPath()), permission, document);
+      content += document.getContent().length();
+    }
+    metrics.write(repository).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    metrics.documentsStored(repository).increment(documents.size());
+    metrics.content(repository).increment(content);
+  }
+
   void delete(Collection<String> paths) {
     if (paths.isEmpty()) {
       return;
@@ -68,6 +196,7 @@ class Indexer {
       LOG.trace("delete {} from index", path);
       deleter.byId(id(path));
     }
+    metrics.documentsDeleted(repository).increment(paths.size());
   }
 
   void deleteAll() {
@@ -82,4 +211,27 @@ class Indexer {
     return Id.of(SmeagolDocument.class, path).and(Repository.class, repository);
   }
 
+  private static class ReadResult {
+
+    private final List<SmeagolDocument> documents;
+    private final Throwable failure;
+
+    private ReadResult(List<SmeagolDocument> documents, Throwable failure) {
+      this.documents = documents;
+      this.failure = failure;
+    }
+
+    List<SmeagolDocument> getDocuments() throws IOException {
+      if (failure instanceof IOException ioException) {
+        throw ioException;
+      } else if (failure instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      } else if (failure instanceof Error error) {
+        throw error;
+      } else if (failure != null) {
+        throw new IOException("failed to read documents of repository", failure);
+      }
+      return documents;
+    }
+  }
 }
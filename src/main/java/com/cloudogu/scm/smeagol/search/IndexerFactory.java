@@ -17,6 +17,7 @@
 package com.cloudogu.scm.smeagol.search;
 
 import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
 import sonia.scm.search.Index;
 
 import jakarta.inject.Inject;
@@ -25,14 +26,23 @@ import jakarta.inject.Inject;
 public class IndexerFactory {
 
   private final SmeagolDocumentFactory smeagolDocumentFactory;
+  private final RepositoryServiceFactory repositoryServiceFactory;
+  private final IndexReaderExecutor readerExecutor;
+  private final IndexMetrics metrics;
 
   @Inject
-  public IndexerFactory(SmeagolDocumentFactory smeagolDocumentFactory) {
+  public IndexerFactory(SmeagolDocumentFactory smeagolDocumentFactory,
+                        RepositoryServiceFactory repositoryServiceFactory,
+                        IndexReaderExecutor readerExecutor,
+                        IndexMetrics metrics) {
     this.smeagolDocumentFactory = smeagolDocumentFactory;
+    this.repositoryServiceFactory = repositoryServiceFactory;
+    this.readerExecutor = readerExecutor;
+    this.metrics = metrics;
   }
 
   public Indexer create(Index<SmeagolDocument> index, RepositoryService repositoryService) {
-    return new Indexer(smeagolDocumentFactory, index, repositoryService);
+    return new Indexer(smeagolDocumentFactory, index, repositoryServiceFactory, repositoryService, readerExecutor, metrics);
   }
 
 }
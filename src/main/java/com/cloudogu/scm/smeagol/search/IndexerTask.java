@@ -22,16 +22,26 @@ import sonia.scm.search.Index;
 import sonia.scm.search.SerializableIndexTask;
 
 import jakarta.inject.Inject;
+import java.time.Instant;
 
 @SuppressWarnings("UnstableApiUsage")
 public class IndexerTask implements SerializableIndexTask<SmeagolDocument> {
 
   private final Repository repository;
+  private final Instant pushedAt;
 
   private IndexSyncer syncer;
 
   public IndexerTask(Repository repository) {
+    this(repository, null);
+  }
+
+  /**
+   * Creates a task for an index update which was triggered by a push at the given time.
+   */
+  public IndexerTask(Repository repository, Instant pushedAt) {
     this.repository = repository;
+    this.pushedAt = pushedAt;
   }
 
   @Inject
@@ -44,8 +54,13 @@ public class IndexerTask implements SerializableIndexTask<SmeagolDocument> {
     return repository;
   }
 
+  @VisibleForTesting
+  Instant getPushedAt() {
+    return pushedAt;
+  }
+
   @Override
   public void update(Index<SmeagolDocument> index) {
-    syncer.ensureIndexIsUpToDate(index, repository);
+    syncer.ensureIndexIsUpToDate(index, repository, pushedAt);
   }
 }
@@ -23,11 +23,17 @@ class IndexingContext {
 
   private final RepositoryService repositoryService;
   private final IndexStatusStore indexStatusStore;
+  private final IndexedPathStore indexedPathStore;
+  private final SmeagolConfigurationCache configurationCache;
+  private final IndexMetrics metrics;
   private final Indexer indexer;
 
-  IndexingContext(RepositoryService repositoryService, IndexStatusStore indexStatusStore, Indexer indexer) {
+  IndexingContext(RepositoryService repositoryService, IndexStatusStore indexStatusStore, IndexedPathStore indexedPathStore, SmeagolConfigurationCache configurationCache, IndexMetrics metrics, Indexer indexer) {
     this.repositoryService = repositoryService;
     this.indexStatusStore = indexStatusStore;
+    this.indexedPathStore = indexedPathStore;
+    this.configurationCache = configurationCache;
+    this.metrics = metrics;
     this.indexer = indexer;
   }
 
@@ -43,12 +49,20 @@ class IndexingContext {
     return indexStatusStore;
   }
 
+  public IndexedPathStore getIndexedPathStore() {
+    return indexedPathStore;
+  }
+
+  public IndexMetrics getMetrics() {
+    return metrics;
+  }
+
   public UpdatePathCollector getUpdatePathCollector() {
-    return new UpdatePathCollector(repositoryService, new SmeagolConfigurationResolver(repositoryService));
+    return new UpdatePathCollector(repositoryService, new SmeagolConfigurationResolver(repositoryService, configurationCache));
   }
 
   public RevisionPathCollector getRevisionPathCollector() {
-    return new RevisionPathCollector(repositoryService, new SmeagolConfigurationResolver(repositoryService));
+    return new RevisionPathCollector(repositoryService, new SmeagolConfigurationResolver(repositoryService, configurationCache));
   }
 
   public DefaultBranchResolver getDefaultBranchResolver() {
@@ -23,14 +23,20 @@ import jakarta.inject.Inject;
 public class IndexingContextFactory {
 
   private final IndexStatusStore indexStatusStore;
+  private final IndexedPathStore indexedPathStore;
+  private final SmeagolConfigurationCache configurationCache;
+  private final IndexMetrics metrics;
 
   @Inject
-  public IndexingContextFactory(IndexStatusStore indexStatusStore) {
+  public IndexingContextFactory(IndexStatusStore indexStatusStore, IndexedPathStore indexedPathStore, SmeagolConfigurationCache configurationCache, IndexMetrics metrics) {
     this.indexStatusStore = indexStatusStore;
+    this.indexedPathStore = indexedPathStore;
+    this.configurationCache = configurationCache;
+    this.metrics = metrics;
   }
 
   public IndexingContext create(RepositoryService repositoryService, Indexer indexer) {
-    return new IndexingContext(repositoryService, indexStatusStore, indexer);
+    return new IndexingContext(repositoryService, indexStatusStore, indexedPathStore, configurationCache, metrics, indexer);
   }
 
 }
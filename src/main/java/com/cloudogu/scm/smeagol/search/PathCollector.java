@@ -23,4 +23,9 @@ public interface PathCollector {
   Collection<String> getPathToStore();
   Collection<String> getPathToDelete();
 
+  /**
+   * Returns <code>true</code>, if the collected revision has a smeagol configuration.
+   */
+  boolean hasSmeagolConfiguration();
+
 }
@@ -24,23 +24,26 @@ import sonia.scm.repository.FileObject;
 import sonia.scm.repository.api.RepositoryService;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 
-import static java.util.Optional.empty;
-import static java.util.Optional.of;
-
 public class RevisionPathCollector implements PathCollector {
 
   private static final Logger LOG = LoggerFactory.getLogger(RevisionPathCollector.class);
 
+  private static final int PAGE_SIZE = Math.max(1, Integer.getInteger("com.cloudogu.scm.smeagol.browsePageSize", 1000));
+
   private final Set<String> pathToStore = new HashSet<>();
   private final RepositoryService repositoryService;
   private final SmeagolConfigurationResolver smeagolConfigurationResolver;
 
+  private boolean smeagolConfiguration = false;
+
   public RevisionPathCollector(RepositoryService repositoryService, SmeagolConfigurationResolver smeagolConfigurationResolver) {
     this.repositoryService = repositoryService;
     this.smeagolConfigurationResolver = smeagolConfigurationResolver;
@@ -56,44 +59,76 @@ public class RevisionPathCollector implements PathCollector {
     return pathToStore;
   }
 
-  public void collect(String revision) {
-    smeagolConfigurationResolver.readConfig();
-    smeagolConfigurationResolver
-      .getSmeagolPath()
-      .ifPresent(smeagolPath -> collect(revision, smeagolPath));
+  @Override
+  public boolean hasSmeagolConfiguration() {
+    return smeagolConfiguration;
   }
 
-  private void collect(String revision, String smeagolPath) {
-    browseSmeagolDocuments(revision, smeagolPath)
-      .ifPresent(result -> collect(result.getFile()));
+  public void collect(String revision) {
+    smeagolConfigurationResolver.readConfig(revision);
+    Optional<String> smeagolPath = smeagolConfigurationResolver.getSmeagolPath();
+    smeagolConfiguration = smeagolPath.isPresent();
+    smeagolPath.ifPresent(path -> collect(revision, path));
   }
 
-  private Optional<BrowserResult> browseSmeagolDocuments(String revision, String smeagolPath) {
+  /**
+   * Walks the smeagol directory one directory at a time. Each browse returns only the direct children
+   * of a directory (in pages of {@link #PAGE_SIZE}), so the complete tree is never held in memory.
+   */
+  private void collect(String revision, String smeagolPath) {
     LOG.debug("browsing smeagol documents in directory {} in revision {} in repository {}", smeagolPath, revision, repositoryService.getRepository());
+    Deque<String> directories = new ArrayDeque<>();
+    directories.add(smeagolPath);
     try {
-      return of(repositoryService.getBrowseCommand()
-        .setDisableSubRepositoryDetection(true)
-        .setDisableLastCommit(true)
-        .setDisablePreProcessors(true)
-        .setLimit(Integer.MAX_VALUE)
-        .setRecursive(true)
-        .setRevision(revision)
-        .setPath(smeagolPath)
-        .getBrowserResult());
+      while (!directories.isEmpty()) {
+        collect(revision, directories.poll(), directories);
+      }
     } catch (NotFoundException e) {
       LOG.info("configured smeagol directory '{}' not found in revision {} in repository {}", smeagolPath, revision, repositoryService.getRepository());
     } catch (IOException e) {
       LOG.warn("error while browsing documents for repository {} with revision {}", repositoryService.getRepository(), revision, e);
     }
-    return empty();
   }
 
-  private void collect(FileObject file) {
-    if (file.isDirectory()) {
-      for (FileObject child : file.getChildren()) {
-        collect(child);
+  private void collect(String revision, String directory, Deque<String> directories) throws IOException {
+    int offset = 0;
+    boolean truncated;
+    do {
+      FileObject file = browse(revision, directory, offset).getFile();
+      if (!file.isDirectory()) {
+        collect(file);
+        return;
       }
-    } else if (smeagolConfigurationResolver.isSmeagolDocument(file.getPath())) {
+      Collection<FileObject> children = file.getChildren();
+      for (FileObject child : children) {
+        if (child.isDirectory()) {
+          directories.add(child.getPath());
+        } else {
+          collect(child);
+        }
+      }
+      offset += children.size();
+      truncated = file.isTruncated() && !children.isEmpty();
+    } while (truncated);
+  }
+
+  private BrowserResult browse(String revision, String directory, int offset) throws IOException {
+    LOG.trace("browsing directory {} from offset {}", directory, offset);
+    return repositoryService.getBrowseCommand()
+      .setDisableSubRepositoryDetection(true)
+      .setDisableLastCommit(true)
+      .setDisablePreProcessors(true)
+      .setDisableCache(true)
+      .setLimit(PAGE_SIZE)
+      .setOffset(offset)
+      .setRecursive(false)
+      .setRevision(revision)
+      .setPath(directory)
+      .getBrowserResult();
+  }
+
+  private void collect(FileObject file) {
+    if (smeagolConfigurationResolver.isSmeagolDocument(file.getPath())) {
       pathToStore.add(file.getPath());
     }
   }
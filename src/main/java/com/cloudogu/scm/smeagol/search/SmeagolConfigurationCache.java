@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import sonia.scm.repository.Repository;
+
+import jakarta.inject.Singleton;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Shared cache for the smeagol directories configured in the <code>.smeagol.yml</code> of a
+ * repository revision. The configuration of a revision never changes, so entries are only evicted
+ * to limit the size of the cache.
+ */
+@Singleton
+public class SmeagolConfigurationCache {
+
+  public static final String CONFIGURATION_FILE = ".smeagol.yml";
+
+  private static final long CACHE_SIZE = Long.getLong("com.cloudogu.scm.smeagol.configurationCacheSize", 10000L);
+
+  /**
+   * The configured smeagol directory or an empty optional, if there is no configuration file in the revision.
+   */
+  private final Cache<String, Optional<String>> cache = CacheBuilder.newBuilder()
+    .maximumSize(CACHE_SIZE)
+    .build();
+
+  /**
+   * Returns the cached smeagol directory for the revision, or loads it with the given loader. Failing
+   * loads are not cached.
+   */
+  Optional<String> get(Repository repository, String revision, Loader loader) throws IOException {
+    String key = key(repository, revision);
+    Optional<String> smeagolPath = cache.getIfPresent(key);
+    if (smeagolPath == null) {
+      smeagolPath = loader.load();
+      cache.put(key, smeagolPath);
+    }
+    return smeagolPath;
+  }
+
+  /**
+   * Returns whether the revision has a configuration file, if this is already known. An empty
+   * optional is returned, if the revision has not been loaded yet.
+   */
+  public Optional<Boolean> isConfigured(Repository repository, String revision) {
+    return Optional.ofNullable(cache.getIfPresent(key(repository, revision))).map(Optional::isPresent);
+  }
+
+  private String key(Repository repository, String revision) {
+    return repository.getId() + ":" + revision;
+  }
+
+  @FunctionalInterface
+  interface Loader {
+    Optional<String> load() throws IOException;
+  }
+}
@@ -25,7 +25,6 @@ import sonia.scm.repository.api.RepositoryService;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
@@ -37,13 +36,15 @@ public class SmeagolConfigurationResolver {
 
   private static final Logger LOG = LoggerFactory.getLogger(SmeagolConfigurationResolver.class);
   private static final String DEFAULT_DOCS_DIRECTORY = "docs";
-  private static final String MARKDOWN_SUFFIX = ".md";
 
   private final RepositoryService service;
+  private final SmeagolConfigurationCache cache;
   private String smeagolPath;
+  private SmeagolPathMatcher pathMatcher;
 
-  public SmeagolConfigurationResolver(RepositoryService service) {
+  public SmeagolConfigurationResolver(RepositoryService service, SmeagolConfigurationCache cache) {
     this.service = service;
+    this.cache = cache;
   }
 
   void readConfig() {
@@ -51,28 +52,49 @@ public class SmeagolConfigurationResolver {
   }
 
   void readConfig(@Nullable String revision) {
-    readSmeagolConfig(revision).ifPresent(
+    readSmeagolPath(revision).ifPresent(path -> {
+      smeagolPath = path;
+      pathMatcher = SmeagolPathMatcher.forDirectory(path);
+    });
+  }
+
+  /**
+   * Reads the smeagol directory configured in the given revision without changing the state of this resolver.
+   * Results for explicit revisions are taken from the shared {@link SmeagolConfigurationCache}.
+   */
+  Optional<String> readSmeagolPath(@Nullable String revision) {
+    try {
+      if (revision == null) {
+        return loadSmeagolPath(null);
+      }
+      return cache.get(service.getRepository(), revision, () -> loadSmeagolPath(revision));
+    } catch (IOException e) {
+      LOG.warn("could not read smeagol configuration for repository {}", service.getRepository());
+    }
+    return empty();
+  }
+
+  private Optional<String> loadSmeagolPath(@Nullable String revision) throws IOException {
+    return readSmeagolConfig(revision).map(
       smeagolConfig -> {
         Yaml yaml = new Yaml();
         Map<String, Object> smeagol = yaml.load(smeagolConfig);
-        extractPathFromConfigMap(smeagol);
+        return extractPathFromConfigMap(smeagol);
       }
     );
   }
 
-  private Optional<String> readSmeagolConfig(@Nullable String revision) {
+  private Optional<String> readSmeagolConfig(@Nullable String revision) throws IOException {
     try {
       CatCommandBuilder catCommand = service.getCatCommand();
       if (revision != null) {
         LOG.trace("using revision {}", revision);
         catCommand.setRevision(revision);
       }
-      String content = catCommand.getContent(".smeagol.yml");
+      String content = catCommand.getContent(SmeagolConfigurationCache.CONFIGURATION_FILE);
       return of(content);
     } catch (NotFoundException e) {
       LOG.trace("no file '.smeagol.yml' found in repository {}", service.getRepository());
-    } catch (IOException e) {
-      LOG.warn("could not read smeagol configuration for repository {}", service.getRepository());
     }
     return empty();
   }
@@ -81,17 +103,17 @@ public class SmeagolConfigurationResolver {
     return ofNullable(smeagolPath);
   }
 
-  private void extractPathFromConfigMap(Map<String, Object> smeagol) {
+  private String extractPathFromConfigMap(Map<String, Object> smeagol) {
     if (smeagol == null) {
-      smeagolPath = DEFAULT_DOCS_DIRECTORY;
-      LOG.trace("found empty smeagol configuration for repository {}; using default directory {}", service.getRepository(), smeagolPath);
-    } else {
-      smeagolPath = smeagol.getOrDefault("directory", DEFAULT_DOCS_DIRECTORY).toString();
-      LOG.trace("found smeagol configuration with directory {} for repository {}", smeagolPath, service.getRepository());
+      LOG.trace("found empty smeagol configuration for repository {}; using default directory {}", service.getRepository(), DEFAULT_DOCS_DIRECTORY);
+      return DEFAULT_DOCS_DIRECTORY;
     }
+    String path = smeagol.getOrDefault("directory", DEFAULT_DOCS_DIRECTORY).toString();
+    LOG.trace("found smeagol configuration with directory {} for repository {}", path, service.getRepository());
+    return path;
   }
 
   boolean isSmeagolDocument(String path) {
-    return path.startsWith(smeagolPath) && path.toLowerCase(Locale.ENGLISH).endsWith(MARKDOWN_SUFFIX);
+    return pathMatcher != null && pathMatcher.matches(path);
   }
 }
@@ -16,21 +16,86 @@
 
 package com.cloudogu.scm.smeagol.search;
 
-import com.google.common.io.ByteStreams;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.repository.Branch;
+import sonia.scm.repository.api.CatCommandBuilder;
 import sonia.scm.repository.api.RepositoryService;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 public class SmeagolDocumentFactory {
 
+  private static final Logger LOG = LoggerFactory.getLogger(SmeagolDocumentFactory.class);
+
+  private static final int MAX_CONTENT_LENGTH = Math.max(1, Integer.getInteger("com.cloudogu.scm.smeagol.maxContentLength", 1024 * 1024));
+  private static final int BUFFER_SIZE = 8192;
+
+  @VisibleForTesting
+  int maxContentLength = MAX_CONTENT_LENGTH;
+
   public SmeagolDocument create(RepositoryService repositoryService, Branch branch, String path) throws IOException {
-    try (InputStream content = repositoryService.getCatCommand().setRevision(branch.getRevision()).getStream(path)) {
-      ByteArrayOutputStream output = new ByteArrayOutputStream();
-      ByteStreams.copy(content, output);
-      return new SmeagolDocument(branch, path, repositoryService.getRepository().getId(), output.toString("UTF-8"));
+    return create(repositoryService.getCatCommand().setRevision(branch.getRevision()), branch, repositoryService.getRepository().getId(), path, new char[BUFFER_SIZE]);
+  }
+
+  /**
+   * Creates the documents for all given paths, reusing one cat command and one read buffer for all of them.
+   */
+  public List<SmeagolDocument> create(RepositoryService repositoryService, Branch branch, Collection<String> paths) throws IOException {
+    CatCommandBuilder catCommand = repositoryService.getCatCommand().setRevision(branch.getRevision());
+    String repositoryId = repositoryService.getRepository().getId();
+    char[] buffer = new char[BUFFER_SIZE];
+    List<SmeagolDocument> documents = new ArrayList<>(paths.size());
+    for (String path : paths) {
+      documents.add(create(catCommand, branch, repositoryId, path, buffer));
+    }
+    return documents;
+  }
+
+  private SmeagolDocument create(CatCommandBuilder catCommand, Branch branch, String repositoryId, String path, char[] buffer) throws IOException {
+    try (InputStream content = catCommand.getStream(path)) {
+      return new SmeagolDocument(branch, path, repositoryId, read(path, content, buffer));
+    }
+  }
+
+  /**
+   * Decodes the content directly into the resulting characters, without collecting the raw bytes
+   * first. Content beyond the maximum length is not read at all, apart from one character to find out
+   * whether there is more.
+   */
+  private String read(String path, InputStream content, char[] buffer) throws IOException {
+    Reader reader = new InputStreamReader(content, StandardCharsets.UTF_8);
+    StringBuilder builder = new StringBuilder(initialCapacity(content));
+    int read;
+    while (builder.length() < maxContentLength
+      && (read = reader.read(buffer, 0, Math.min(buffer.length, maxContentLength - builder.length()))) != -1) {
+      builder.append(buffer, 0, read);
+    }
+    if (builder.length() >= maxContentLength && reader.read() != -1) {
+      if (Character.isHighSurrogate(builder.charAt(builder.length() - 1))) {
+        // do not keep half of a surrogate pair at the end of truncated content
+        builder.setLength(builder.length() - 1);
+      }
+      LOG.debug("content of {} exceeds the limit of {} characters, the rest is not indexed", path, maxContentLength);
+    }
+    return builder.toString();
+  }
+
+  private int initialCapacity(InputStream content) throws IOException {
+    // the blob streams report the remaining size of the blob, which is an upper bound for the number
+    // of characters; streams which do not know their size report 0
+    int available = content.available();
+    if (available <= 0) {
+      return Math.min(BUFFER_SIZE, maxContentLength);
     }
+    return Math.min(available, maxContentLength);
   }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+/**
+ * Decides whether a path is a smeagol document, i.e. a markdown file inside the smeagol directory.
+ * Paths are checked in place without creating new strings, because this is done for every path of
+ * a revision or a change set.
+ */
+final class SmeagolPathMatcher {
+
+  private static final String MARKDOWN_SUFFIX = ".md";
+
+  private final String directory;
+
+  private SmeagolPathMatcher(String directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Creates a matcher for the given smeagol directory. The directory <code>.</code> (or an empty
+   * directory) stands for the root of the repository.
+   */
+  static SmeagolPathMatcher forDirectory(String smeagolPath) {
+    String directory = smeagolPath.trim();
+    while (directory.startsWith("./")) {
+      directory = directory.substring(2);
+    }
+    while (directory.startsWith("/")) {
+      directory = directory.substring(1);
+    }
+    while (directory.endsWith("/")) {
+      directory = directory.substring(0, directory.length() - 1);
+    }
+    if (directory.equals(".")) {
+      directory = "";
+    }
+    return new SmeagolPathMatcher(directory);
+  }
+
+  boolean matches(String path) {
+    return isMarkdown(path) && isInDirectory(path);
+  }
+
+  private boolean isMarkdown(String path) {
+    int offset = path.length() - MARKDOWN_SUFFIX.length();
+    return offset >= 0 && path.regionMatches(true, offset, MARKDOWN_SUFFIX, 0, MARKDOWN_SUFFIX.length());
+  }
+
+  private boolean isInDirectory(String path) {
+    if (directory.isEmpty()) {
+      return true;
+    }
+    return path.length() > directory.length()
+      && path.charAt(directory.length()) == '/'
+      && path.startsWith(directory);
+  }
+}
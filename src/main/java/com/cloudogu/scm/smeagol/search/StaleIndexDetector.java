@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Checks whether the index of a repository is behind its default branch, using the same criteria
+ * as {@link IndexSyncWorker#ensureIndexIsUpToDate()}, but without creating an index task.
+ */
+public class StaleIndexDetector {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StaleIndexDetector.class);
+
+  private final RepositoryServiceFactory repositoryServiceFactory;
+  private final IndexStatusStore indexStatusStore;
+
+  @Inject
+  public StaleIndexDetector(RepositoryServiceFactory repositoryServiceFactory, IndexStatusStore indexStatusStore) {
+    this.repositoryServiceFactory = repositoryServiceFactory;
+    this.indexStatusStore = indexStatusStore;
+  }
+
+  /**
+   * Passes each of the given repositories, whose index is stale, to the consumer as soon as this is
+   * known. The index states of all repositories are read in one pass. Repositories without an index
+   * status of the current version are passed right away; for all others the head of the default
+   * branch is resolved by a task of the given executor, so the consumer may be called from its
+   * threads after this method has returned.
+   */
+  public void findStale(Collection<Repository> repositories, Executor executor, Consumer<Repository> consumer) {
+    Map<String, IndexStatus> statuses = indexStatusStore.getAll();
+    for (Repository repository : repositories) {
+      IndexStatus status = statuses.get(repository.getId());
+      if (status == null || status.getVersion() != SmeagolDocument.VERSION) {
+        consumer.accept(repository);
+      } else {
+        executor.execute(() -> {
+          if (isStale(repository, status)) {
+            consumer.accept(repository);
+          }
+        });
+      }
+    }
+  }
+
+  private boolean isStale(Repository repository, IndexStatus status) {
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(repository)) {
+      return isStale(status, new DefaultBranchResolver(repositoryService).resolve());
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("could not resolve default branch of repository {}, assuming index is stale", repository, e);
+      return true;
+    }
+  }
+
+  private boolean isStale(IndexStatus status, Optional<Branch> defaultBranch) {
+    if (defaultBranch.isEmpty()) {
+      return !status.isEmpty();
+    }
+    return status.isEmpty()
+      || !status.getBranch().equals(defaultBranch.get().getName())
+      || !status.getRevision().equals(defaultBranch.get().getRevision());
+  }
+}
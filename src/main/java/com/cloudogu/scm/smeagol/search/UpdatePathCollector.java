@@ -16,6 +16,7 @@
 
 package com.cloudogu.scm.smeagol.search;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.repository.Added;
@@ -42,7 +43,10 @@ public class UpdatePathCollector implements PathCollector {
   private final RepositoryService repositoryService;
   private final SmeagolConfigurationResolver smeagolConfigurationResolver;
 
+  private boolean smeagolConfiguration = false;
   private boolean configurationChanged = false;
+  private boolean smeagolDirectoryChanged = false;
+  private boolean complete = false;
 
   public UpdatePathCollector(RepositoryService repositoryService, SmeagolConfigurationResolver smeagolConfigurationResolver) {
     this.repositoryService = repositoryService;
@@ -59,12 +63,18 @@ public class UpdatePathCollector implements PathCollector {
     return pathToDelete;
   }
 
+  @Override
+  public boolean hasSmeagolConfiguration() {
+    return smeagolConfiguration;
+  }
+
   void collect(String from, String to) {
     smeagolConfigurationResolver.readConfig(to);
     Optional<String> smeagolPath = smeagolConfigurationResolver.getSmeagolPath();
     if (!smeagolPath.isPresent()) {
       return;
     }
+    smeagolConfiguration = true;
 
     try {
       Modifications modifications = repositoryService.getModificationsCommand()
@@ -75,6 +85,11 @@ public class UpdatePathCollector implements PathCollector {
         .getModifications();
 
       collect(modifications);
+      if (configurationChanged) {
+        smeagolDirectoryChanged = !smeagolConfigurationResolver.readSmeagolPath(from).equals(smeagolPath);
+        LOG.debug("smeagol configuration changed in repository {}, directory changed: {}", repositoryService.getRepository(), smeagolDirectoryChanged);
+      }
+      complete = true;
     } catch (IOException e) {
       LOG.warn("could not load modifications from revision {} to {} in repository {}", from, to, repositoryService.getRepository(), e);
     }
@@ -135,7 +150,24 @@ public class UpdatePathCollector implements PathCollector {
     }
   }
 
-  public boolean isConfigurationChanged() {
+  @VisibleForTesting
+  boolean isConfigurationChanged() {
     return configurationChanged;
   }
+
+  /**
+   * Returns <code>true</code>, if the configuration has been changed and the smeagol directory
+   * configured in the new revision differs from the one in the old revision.
+   */
+  public boolean isSmeagolDirectoryChanged() {
+    return smeagolDirectoryChanged;
+  }
+
+  /**
+   * Returns <code>true</code>, if the modifications could be loaded and the collected paths
+   * therefore reflect all changes between both revisions.
+   */
+  boolean isComplete() {
+    return complete;
+  }
 }
@@ -101,6 +101,23 @@ class IndexLinkEnricherTest {
     verify(appender).appendLink("smeagolConfig", "/smeagol/configuration");
   }
 
+  @Test
+  void shouldAppendIndexStatusLinkForAdministrators() {
+    when(subject.isPermitted("configuration:read:smeagol")).thenReturn(true);
+    when(smeagolLinkBuilder.getIndexStatusLink()).thenReturn("/smeagol/index-status");
+
+    enricher.enrich(context, appender);
+
+    verify(appender).appendLink("smeagolIndexStatus", "/smeagol/index-status");
+  }
+
+  @Test
+  void shouldNotAppendIndexStatusLinkWithoutPermission() {
+    enricher.enrich(context, appender);
+
+    verify(appender, never()).appendLink(eq("smeagolIndexStatus"), anyString());
+  }
+
   @Test
   void shouldAppendRootLink() {
     SmeagolConfiguration.Config config = new SmeagolConfiguration.Config();
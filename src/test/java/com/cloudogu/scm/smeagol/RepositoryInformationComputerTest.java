@@ -16,6 +16,7 @@
 
 package com.cloudogu.scm.smeagol;
 
+import com.cloudogu.scm.smeagol.search.SmeagolConfigurationCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -36,9 +37,21 @@ import sonia.scm.repository.api.RepositoryService;
 import sonia.scm.repository.api.RepositoryServiceFactory;
 
 import java.io.IOException;
+import java.util.Optional;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static sonia.scm.repository.Branch.defaultBranch;
 import static sonia.scm.repository.Branch.normalBranch;
@@ -58,6 +71,10 @@ class RepositoryInformationComputerTest {
   private BranchesCommandBuilder branchesCommandBuilder;
   @Mock(answer = Answers.RETURNS_SELF)
   private BrowseCommandBuilder browseCommandBuilder;
+  @Mock
+  private RepositoryInformationCache cache;
+  @Mock
+  private SmeagolConfigurationCache configurationCache;
 
   @InjectMocks
   private RepositoryInformationComputer computer;
@@ -81,7 +98,7 @@ class RepositoryInformationComputerTest {
     void setupService() {
       when(service.isSupported(Command.BRANCHES)).thenReturn(true);
       when(service.getBranchesCommand()).thenReturn(branchesCommandBuilder);
-      when(service.getBrowseCommand()).thenReturn(browseCommandBuilder);
+      lenient().when(service.getBrowseCommand()).thenReturn(browseCommandBuilder);
     }
 
     @Test
@@ -127,6 +144,125 @@ class RepositoryInformationComputerTest {
       assertThat(information.isWikiEnabled()).isFalse();
     }
 
+    @Test
+    void shouldStoreComputedInformation() throws IOException {
+      mockEmptyBrowseResult();
+      when(branchesCommandBuilder.getBranches())
+        .thenReturn(new Branches(normalBranch("feature", "2"), defaultBranch("develop", "1")));
+
+      computer.compute(REPOSITORY);
+
+      verify(cache).put(eq(REPOSITORY), argThat(stored -> {
+        assertThat(stored.getDefaultBranch()).isEqualTo("develop");
+        assertThat(stored.isWikiEnabled()).isFalse();
+        assertThat(stored.getBranches())
+          .extracting("name", "revision")
+          .containsExactly(tuple("feature", "2"), tuple("develop", "1"));
+        return true;
+      }));
+    }
+
+    @Test
+    void shouldUseKnownSmeagolConfiguration() throws IOException {
+      when(branchesCommandBuilder.getBranches())
+        .thenReturn(new Branches(defaultBranch("develop", "1")));
+      when(configurationCache.isConfigured(REPOSITORY, "1"))
+        .thenReturn(Optional.of(true));
+
+      RepositoryInformation information = computer.compute(REPOSITORY);
+
+      assertThat(information.isWikiEnabled()).isTrue();
+      verify(service, never()).getBrowseCommand();
+    }
+
+    @Test
+    void shouldUseStoredInformationIfBranchesAreUnchanged() throws IOException {
+      when(branchesCommandBuilder.getBranches())
+        .thenReturn(new Branches(normalBranch("feature", "2"), defaultBranch("develop", "1")));
+      when(cache.get(REPOSITORY))
+        .thenReturn(Optional.of(storedInformation("feature", "2")));
+
+      RepositoryInformation information = computer.compute(REPOSITORY);
+
+      assertThat(information.getDefaultBranch()).isEqualTo("develop");
+      assertThat(information.isWikiEnabled()).isTrue();
+      verify(service, never()).getBrowseCommand();
+      verify(cache, never()).put(any(), any());
+    }
+
+    @Test
+    void shouldRecomputeIfBranchHeadChanged() throws IOException {
+      when(branchesCommandBuilder.getBranches())
+        .thenReturn(new Branches(normalBranch("feature", "3"), defaultBranch("develop", "1")));
+      when(cache.get(REPOSITORY))
+        .thenReturn(Optional.of(storedInformation("feature", "2")));
+
+      RepositoryInformation information = computer.compute(REPOSITORY);
+
+      assertThat(information.isWikiEnabled()).isTrue();
+      verify(browseCommandBuilder, never()).setRevision(anyString());
+      verify(cache).put(eq(REPOSITORY), any());
+    }
+
+    @Test
+    void shouldOnlyCheckTouchedBranches() throws IOException {
+      when(browseCommandBuilder.getBrowserResult()).thenThrow(NotFoundException.class);
+      when(branchesCommandBuilder.getBranches())
+        .thenReturn(new Branches(normalBranch("feature", "2"), defaultBranch("develop", "4")));
+      when(cache.get(REPOSITORY))
+        .thenReturn(Optional.of(storedInformation("feature", "2")));
+
+      RepositoryInformation information = computer.compute(REPOSITORY, singletonList("develop"));
+
+      assertThat(information.isWikiEnabled()).isFalse();
+      verify(browseCommandBuilder).setRevision("4");
+      verify(browseCommandBuilder, never()).setRevision("2");
+      verify(cache).put(eq(REPOSITORY), argThat(stored -> {
+        assertThat(stored.getBranches())
+          .extracting("name", "smeagolFile")
+          .containsExactly(tuple("feature", false), tuple("develop", false));
+        return true;
+      }));
+    }
+
+    @Test
+    void shouldCheckDefaultBranchFirst() throws IOException {
+      when(branchesCommandBuilder.getBranches())
+        .thenReturn(new Branches(normalBranch("feature", "2"), defaultBranch("develop", "1")));
+      when(browseCommandBuilder.getBrowserResult()).thenReturn(new BrowserResult("1", new FileObject()));
+
+      RepositoryInformation information = computer.compute(REPOSITORY);
+
+      assertThat(information.isWikiEnabled()).isTrue();
+      verify(browseCommandBuilder).setRevision("1");
+      verify(browseCommandBuilder, never()).setRevision("2");
+    }
+
+    @Test
+    void shouldRememberResultForRevision() throws IOException {
+      when(branchesCommandBuilder.getBranches())
+        .thenReturn(new Branches(defaultBranch("develop", "1")));
+      when(browseCommandBuilder.getBrowserResult()).thenThrow(NotFoundException.class);
+
+      computer.compute(REPOSITORY);
+      RepositoryInformation information = computer.compute(REPOSITORY);
+
+      assertThat(information.isWikiEnabled()).isFalse();
+      verify(browseCommandBuilder, times(1)).getBrowserResult();
+    }
+
+    private StoredRepositoryInformation storedInformation(String otherBranch, String otherRevision) {
+      return new StoredRepositoryInformation(
+        RepositoryInformationComputer.SMEAGOL_MARKER_FILE,
+        "develop",
+        true,
+        asList(
+          new StoredRepositoryInformation.StoredBranch(otherBranch, otherRevision, false),
+          new StoredRepositoryInformation.StoredBranch("develop", "1", true)
+        )
+      );
+    }
+
     private void mockEmptyBrowseResult() throws IOException {
       when(browseCommandBuilder.getBrowserResult()).thenReturn(new BrowserResult());
     }
@@ -63,6 +63,31 @@ class RepositoryInformationInitializerTest {
       .hasValueSatisfying(isSmeagolRelevant());
   }
 
+  @Test
+  void shouldKeepOtherRepositoriesIfComputationFails() {
+    Repository brokenRepository = new Repository("2", "git", "space", "broken");
+    when(repositoryManager.getAll())
+      .thenReturn(Arrays.asList(
+        new Repository("1", "git", "space", "repo_1"),
+        brokenRepository,
+        new Repository("3", "git", "space", "repo_3")
+      ));
+    when(computer.compute(any())).thenAnswer(
+      invocation -> {
+        if (invocation.getArgument(0) == brokenRepository) {
+          throw new IllegalStateException("broken repository");
+        }
+        return new RepositoryInformation("main", true);
+      }
+    );
+
+    Map<String, RepositoryInformation> result = initializer.call();
+
+    assertThat(result)
+      .hasSize(2)
+      .containsKeys("1", "3");
+  }
+
   private Condition<RepositoryInformation> isSmeagolRelevant() {
     return new Condition<RepositoryInformation>("is smeagol relevant") {
       public boolean matches(RepositoryInformation tolkienCharacter) {
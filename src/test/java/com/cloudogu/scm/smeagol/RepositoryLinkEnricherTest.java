@@ -26,6 +26,8 @@ import sonia.scm.api.v2.resources.HalEnricherContext;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryTestData;
 
+import java.util.Optional;
+
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -53,7 +55,7 @@ class RepositoryLinkEnricherTest {
     repository.setId("id-1");
     when(context.oneRequireByType(Repository.class)).thenReturn(repository);
     when(configuration.get()).thenReturn(createConfig(true));
-    when(store.getFor(repository)).thenReturn(new SmeagolRepositoryInformation(repository, new RepositoryInformation("develop", true)));
+    when(store.findFor(repository)).thenReturn(Optional.of(new RepositoryInformation("develop", true)));
 
     enricher.enrich(context, appender);
 
@@ -74,7 +76,19 @@ class RepositoryLinkEnricherTest {
     Repository repository = RepositoryTestData.createHeartOfGold("git");
     when(context.oneRequireByType(Repository.class)).thenReturn(repository);
     when(configuration.get()).thenReturn(createConfig(true));
-    when(store.getFor(repository)).thenReturn(new SmeagolRepositoryInformation(repository, new RepositoryInformation("develop", false)));
+    when(store.findFor(repository)).thenReturn(Optional.of(new RepositoryInformation("develop", false)));
+
+    enricher.enrich(context, appender);
+
+    verify(appender, never()).appendLink(anyString(), anyString());
+  }
+
+  @Test
+  void shouldNotAppendSmeagolLinkWhenInformationIsPending() {
+    Repository repository = RepositoryTestData.createHeartOfGold("git");
+    when(context.oneRequireByType(Repository.class)).thenReturn(repository);
+    when(configuration.get()).thenReturn(createConfig(true));
+    when(store.findFor(repository)).thenReturn(Optional.empty());
 
     enricher.enrich(context, appender);
 
@@ -43,6 +43,13 @@ class SmeagolConfigurationTest {
     assertThat(config).isNotNull();
   }
 
+  @Test
+  void shouldNotBeAffectedByModificationsOfReturnedConfiguration() {
+    configuration.get().setSmeagolUrl("http://modified.com/");
+
+    assertThat(configuration.get().getSmeagolUrl()).isEmpty();
+  }
+
 
   @Nested
   class WithSubject {
@@ -70,6 +77,27 @@ class SmeagolConfigurationTest {
       assertThat(storedConfig.getSmeagolUrl()).isEqualTo("http://smeagol.com/");
     }
 
+    @Test
+    void shouldNotBeAffectedByLaterModifications() {
+      Config config = new Config();
+      config.setSmeagolUrl("http://smeagol.com/");
+      configuration.set(config);
+      config.setSmeagolUrl("http://other.com/");
+
+      assertThat(configuration.get().getSmeagolUrl()).isEqualTo("http://smeagol.com/");
+    }
+
+    @Test
+    void shouldNotBeAffectedByModificationsOfStoredConfiguration() {
+      Config config = new Config();
+      config.setSmeagolUrl("http://smeagol.com/");
+      configuration.set(config);
+
+      configuration.get().setSmeagolUrl("http://other.com/");
+
+      assertThat(configuration.get().getSmeagolUrl()).isEqualTo("http://smeagol.com/");
+    }
+
     @Test
     void shouldCheckCredentials() {
       doThrow(AuthorizationException.class).when(subject).checkPermission("configuration:write:smeagol");
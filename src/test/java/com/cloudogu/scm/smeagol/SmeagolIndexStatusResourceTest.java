@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol;
+
+import com.cloudogu.scm.smeagol.search.IndexStatus;
+import com.cloudogu.scm.smeagol.search.IndexStatusStore;
+import com.cloudogu.scm.smeagol.search.SmeagolDocument;
+import org.apache.shiro.authz.AuthorizationException;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Branches;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BranchesCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.web.RestDispatcher;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static jakarta.servlet.http.HttpServletResponse.SC_FORBIDDEN;
+import static jakarta.servlet.http.HttpServletResponse.SC_OK;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jboss.resteasy.mock.MockHttpRequest.get;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SmeagolIndexStatusResourceTest {
+
+  private static final Repository HEART_OF_GOLD = RepositoryTestData.createHeartOfGold();
+  private static final Repository RESTAURANT = RepositoryTestData.createRestaurantAtTheEndOfTheUniverse();
+
+  private final RestDispatcher dispatcher = new RestDispatcher();
+  private final MockHttpResponse response = new MockHttpResponse();
+  private final Map<String, IndexStatus> statuses = new HashMap<>();
+  private final List<Repository> repositories = new ArrayList<>();
+
+  @Mock
+  private IndexStatusStore indexStatusStore;
+  @Mock
+  private RepositoryManager repositoryManager;
+  @Mock
+  private RepositoryServiceFactory serviceFactory;
+  @Mock
+  private RepositoryService service;
+  @Mock
+  private BranchesCommandBuilder branchesCommand;
+  @Mock
+  private SmeagolLinkBuilder smeagolLinkBuilder;
+  @Mock
+  private Subject subject;
+
+  @BeforeEach
+  void initResource() {
+    dispatcher.addSingletonResource(new SmeagolIndexStatusResource(indexStatusStore, repositoryManager, serviceFactory, smeagolLinkBuilder));
+    lenient().when(smeagolLinkBuilder.getIndexStatusLink(anyBoolean(), anyInt(), anyInt()))
+      .thenAnswer(invocation -> "/v2/smeagol/index-status?page=" + invocation.getArgument(1));
+    lenient().when(indexStatusStore.getAll()).thenReturn(statuses);
+    lenient().when(repositoryManager.getAll()).thenReturn(repositories);
+  }
+
+  @BeforeEach
+  void mockSubject() {
+    ThreadContext.bind(subject);
+  }
+
+  @AfterEach
+  void cleanup() {
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  void shouldReturnIndexStatusWithHeadOfDefaultBranch() throws URISyntaxException, IOException {
+    Instant lastUpdate = Instant.now().minus(5, ChronoUnit.MINUTES);
+    HEART_OF_GOLD.setId("hog");
+    IndexStatus status = new IndexStatus("42", "main", lastUpdate, SmeagolDocument.VERSION);
+    status.setPushLatency(1500L);
+    statuses.put("hog", status);
+    mockRepository(HEART_OF_GOLD, Branch.defaultBranch("main", "42", 0L));
+
+    dispatcher.invoke(get("/v2/smeagol/index-status"), response);
+
+    assertThat(response.getStatus()).isEqualTo(SC_OK);
+    assertThat(response.getContentAsString())
+      .contains("\"self\":{\"href\":\"/v2/smeagol/index-status?page=0\"}")
+      .contains("\"repositoryId\":\"hog\"")
+      .contains("\"namespace\":\"hitchhiker\"")
+      .contains("\"indexedRevision\":\"42\"")
+      .contains("\"headRevision\":\"42\"")
+      .contains("\"defaultBranch\":\"main\"")
+      .contains("\"behind\":false")
+      .contains("\"lastPushLatencyMillis\":1500")
+      .containsPattern("\"secondsSinceLastUpdate\":(299|30[0-9])");
+  }
+
+  @Test
+  void shouldMarkIndexBehindHead() throws URISyntaxException, IOException {
+    HEART_OF_GOLD.setId("hog");
+    statuses.put("hog", new IndexStatus("23", "main", Instant.now(), SmeagolDocument.VERSION));
+    mockRepository(HEART_OF_GOLD, Branch.defaultBranch("main", "42", 0L));
+
+    dispatcher.invoke(get("/v2/smeagol/index-status"), response);
+
+    assertThat(response.getContentAsString()).contains("\"behind\":true");
+  }
+
+  @Test
+  void shouldFilterRepositoriesWhichAreUpToDate() throws URISyntaxException, IOException {
+    HEART_OF_GOLD.setId("hog");
+    RESTAURANT.setId("rest");
+    statuses.put("hog", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+    statuses.put("rest", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION - 1));
+    mockRepository(HEART_OF_GOLD, Branch.defaultBranch("main", "42", 0L));
+    repositories.add(RESTAURANT);
+
+    dispatcher.invoke(get("/v2/smeagol/index-status?behind=true"), response);
+
+    assertThat(response.getContentAsString())
+      .contains("\"repositoryId\":\"rest\"")
+      .doesNotContain("\"repositoryId\":\"hog\"");
+    // an index of an old version is behind, no matter what the head is
+    verify(serviceFactory, never()).create(RESTAURANT);
+  }
+
+  @Test
+  void shouldFilterRepositoriesBeforePaging() throws URISyntaxException, IOException {
+    Repository puzzle = RepositoryTestData.create42Puzzle();
+    puzzle.setId("puzzle");
+    HEART_OF_GOLD.setId("hog");
+    RESTAURANT.setId("rest");
+    statuses.put("puzzle", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION - 1));
+    statuses.put("hog", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+    statuses.put("rest", new IndexStatus("23", "main", Instant.now(), SmeagolDocument.VERSION));
+    repositories.add(puzzle);
+    mockRepository(HEART_OF_GOLD, Branch.defaultBranch("main", "42", 0L));
+    mockRepository(RESTAURANT, Branch.defaultBranch("main", "42", 0L));
+
+    dispatcher.invoke(get("/v2/smeagol/index-status?behind=true&page=1&pageSize=1"), response);
+
+    assertThat(response.getStatus()).isEqualTo(SC_OK);
+    assertThat(response.getContentAsString())
+      .contains("\"repositoryId\":\"rest\"")
+      .doesNotContain("\"repositoryId\":\"puzzle\"")
+      .doesNotContain("\"repositoryId\":\"hog\"")
+      .contains("\"page\":1")
+      .contains("\"pageTotal\":2")
+      .contains("\"prev\":{\"href\":\"/v2/smeagol/index-status?page=0\"}")
+      .doesNotContain("\"next\"");
+    // the head of each repository is resolved only once
+    verify(serviceFactory).create(RESTAURANT);
+    verify(serviceFactory, never()).create(puzzle);
+  }
+
+  @Test
+  void shouldResolveHeadsOnlyForRequestedPage() throws URISyntaxException, IOException {
+    Repository puzzle = RepositoryTestData.create42Puzzle();
+    puzzle.setId("puzzle");
+    HEART_OF_GOLD.setId("hog");
+    RESTAURANT.setId("rest");
+    statuses.put("puzzle", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+    statuses.put("hog", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+    statuses.put("rest", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+    repositories.add(puzzle);
+    repositories.add(RESTAURANT);
+    mockRepository(HEART_OF_GOLD, Branch.defaultBranch("main", "42", 0L));
+
+    dispatcher.invoke(get("/v2/smeagol/index-status?page=1&pageSize=1"), response);
+
+    assertThat(response.getStatus()).isEqualTo(SC_OK);
+    assertThat(response.getContentAsString())
+      .contains("\"repositoryId\":\"hog\"")
+      .doesNotContain("\"repositoryId\":\"puzzle\"")
+      .doesNotContain("\"repositoryId\":\"rest\"")
+      .contains("\"page\":1")
+      .contains("\"pageTotal\":3")
+      .contains("\"prev\":{\"href\":\"/v2/smeagol/index-status?page=0\"}")
+      .contains("\"next\":{\"href\":\"/v2/smeagol/index-status?page=2\"}");
+    verify(serviceFactory).create(HEART_OF_GOLD);
+    verify(serviceFactory, never()).create(puzzle);
+    verify(serviceFactory, never()).create(RESTAURANT);
+  }
+
+  @Test
+  void shouldSkipDeletedRepositories() throws URISyntaxException {
+    statuses.put("deleted", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+
+    dispatcher.invoke(get("/v2/smeagol/index-status"), response);
+
+    assertThat(response.getStatus()).isEqualTo(SC_OK);
+    assertThat(response.getContentAsString()).doesNotContain("deleted");
+  }
+
+  @Test
+  void shouldSkipRepositoriesWithoutReadPermission() throws URISyntaxException, IOException {
+    HEART_OF_GOLD.setId("hog");
+    RESTAURANT.setId("rest");
+    statuses.put("hog", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+    statuses.put("rest", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+    // the repository manager returns only readable repositories
+    mockRepository(HEART_OF_GOLD, Branch.defaultBranch("main", "42", 0L));
+
+    dispatcher.invoke(get("/v2/smeagol/index-status"), response);
+
+    assertThat(response.getStatus()).isEqualTo(SC_OK);
+    assertThat(response.getContentAsString())
+      .contains("\"repositoryId\":\"hog\"")
+      .doesNotContain("\"repositoryId\":\"rest\"");
+    verify(repositoryManager, never()).get(anyString());
+  }
+
+  @Test
+  void shouldRequireConfigurationPermission() throws URISyntaxException {
+    doThrow(AuthorizationException.class).when(subject).checkPermission("configuration:read:smeagol");
+
+    dispatcher.invoke(get("/v2/smeagol/index-status"), response);
+
+    assertThat(response.getStatus()).isEqualTo(SC_FORBIDDEN);
+  }
+
+  private void mockRepository(Repository repository, Branch defaultBranch) throws IOException {
+    repositories.add(repository);
+    when(serviceFactory.create(repository)).thenReturn(service);
+    lenient().when(service.getBranchesCommand()).thenReturn(branchesCommand);
+    lenient().when(branchesCommand.getBranches()).thenReturn(new Branches(defaultBranch));
+  }
+}
@@ -38,6 +38,18 @@ class SmeagolLinkBuilderTest {
     assertThat(link).isEqualTo("/v2/smeagol/repositories");
   }
 
+  @Test
+  void shouldGeneratePagedRepositoriesLink() {
+    ScmPathInfoStore pathInfoStore = new ScmPathInfoStore();
+    pathInfoStore.set(() -> URI.create("/"));
+
+    SmeagolLinkBuilder smeagolLinkBuilder = new SmeagolLinkBuilder(of(pathInfoStore));
+
+    String link = smeagolLinkBuilder.getRepositoriesLink(true, 2, 10);
+
+    assertThat(link).isEqualTo("/v2/smeagol/repositories?page=2&pageSize=10&wikiEnabled=true");
+  }
+
   @Test
   void shouldGenerateConfigurationLink() {
     ScmPathInfoStore pathInfoStore = new ScmPathInfoStore();
@@ -49,4 +61,28 @@ class SmeagolLinkBuilderTest {
 
     assertThat(link).isEqualTo("/v2/smeagol/configuration");
   }
+
+  @Test
+  void shouldGenerateIndexStatusLink() {
+    ScmPathInfoStore pathInfoStore = new ScmPathInfoStore();
+    pathInfoStore.set(() -> URI.create("/"));
+
+    SmeagolLinkBuilder smeagolLinkBuilder = new SmeagolLinkBuilder(of(pathInfoStore));
+
+    String link = smeagolLinkBuilder.getIndexStatusLink();
+
+    assertThat(link).isEqualTo("/v2/smeagol/index-status");
+  }
+
+  @Test
+  void shouldGeneratePagedIndexStatusLink() {
+    ScmPathInfoStore pathInfoStore = new ScmPathInfoStore();
+    pathInfoStore.set(() -> URI.create("/"));
+
+    SmeagolLinkBuilder smeagolLinkBuilder = new SmeagolLinkBuilder(of(pathInfoStore));
+
+    String link = smeagolLinkBuilder.getIndexStatusLink(true, 1, 20);
+
+    assertThat(link).isEqualTo("/v2/smeagol/index-status?page=1&pageSize=20&behind=true");
+  }
 }
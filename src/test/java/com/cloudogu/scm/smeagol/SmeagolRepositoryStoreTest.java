@@ -16,6 +16,9 @@
 
 package com.cloudogu.scm.smeagol;
 
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -23,29 +26,41 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.PageResult;
 import sonia.scm.repository.PostReceiveRepositoryHookEvent;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryEvent;
 import sonia.scm.repository.RepositoryHookEvent;
 import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.api.HookBranchProvider;
 import sonia.scm.repository.api.HookContext;
+import sonia.scm.repository.api.HookFeature;
 import sonia.scm.web.security.AdministrationContext;
 import sonia.scm.web.security.PrivilegedAction;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 
 import static com.google.common.collect.ImmutableMap.of;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static sonia.scm.HandlerEventType.CREATE;
@@ -74,9 +89,19 @@ class SmeagolRepositoryStoreTest {
   @InjectMocks
   private SmeagolRepositoryStore store;
 
+  @BeforeEach
+  void recomputeSynchronously() {
+    store.recomputeExecutor = Runnable::run;
+  }
+
+  @AfterEach
+  void closeStore() {
+    store.close();
+  }
+
   @BeforeEach
   void initAdminContext() {
-    doAnswer(invocation -> {
+    lenient().doAnswer(invocation -> {
       asAdmin = true;
       invocation.getArgument(0, PrivilegedAction.class).run();
       asAdmin = false;
@@ -87,7 +112,7 @@ class SmeagolRepositoryStoreTest {
   @BeforeEach
   @SuppressWarnings("unchecked")
   void mockRepositories() {
-    when(informationInitializer.call()).thenAnswer(
+    lenient().when(informationInitializer.call()).thenAnswer(
       invocation -> {
         if (asAdmin) {
           return of(
@@ -133,11 +158,119 @@ class SmeagolRepositoryStoreTest {
     assertThat(repositories).extracting("id").contains("1", "3");
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldReturnPageOfWikiRepositories() {
+    when(repositoryManager.getPage(any(Predicate.class), any(Comparator.class), eq(0), eq(10)))
+      .thenAnswer(invocation -> {
+        List<Repository> repositories = (List<Repository>) ALL_REPOSITORIES
+          .stream()
+          .filter(invocation.getArgument(0, Predicate.class))
+          .collect(toList());
+        return new PageResult<>(repositories, repositories.size());
+      });
+    store.init(null);
+    when(computer.compute(eq(REPOSITORY_3), any())).thenReturn(createInfo(REPOSITORY_3, "main", true));
+    store.detectRepositoryChanges(new RepositoryEvent(CREATE, REPOSITORY_3));
+
+    PageResult<SmeagolRepositoryInformation> page = store.getRepositories(true, 0, 10);
+
+    assertThat(page.getOverallCount()).isEqualTo(1);
+    assertThat(page.getEntities()).extracting("id").containsExactly("3");
+  }
+
+  @Test
+  void shouldStopRecomputeThreadsOnClose() {
+    SmeagolRepositoryStore closedStore = new SmeagolRepositoryStore(administrationContext, informationInitializer, repositoryManager, computer);
+    ExecutorService recomputeThreads = (ExecutorService) closedStore.recomputeExecutor;
+
+    closedStore.close();
+
+    assertThat(recomputeThreads.isShutdown()).isTrue();
+  }
+
+  @Test
+  void shouldNotScheduleComputationBeforeAwaitedInitialization() {
+    store.awaitInitialization = true;
+    List<Runnable> scheduled = new ArrayList<>();
+    store.recomputeExecutor = scheduled::add;
+
+    assertThat(store.findFor(REPOSITORY_1)).isEmpty();
+    assertThat(scheduled).isEmpty();
+  }
+
+  @Test
+  void shouldNotOverwriteRecomputedInformationWithInitialization() {
+    store.awaitInitialization = true;
+    when(computer.compute(eq(REPOSITORY_1), any())).thenReturn(createInfo(REPOSITORY_1, "recomputed", true));
+    store.detectCodeChanges(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(null, REPOSITORY_1, POST_RECEIVE)));
+
+    store.init(null);
+
+    assertThat(store.getFor(REPOSITORY_1).getDefaultBranch()).isEqualTo("recomputed");
+    assertThat(store.getFor(REPOSITORY_3).getDefaultBranch()).isEqualTo("main");
+  }
+
+  @Nested
+  class ForWikiRepositories {
+
+    @Mock
+    private Subject subject;
+
+    @BeforeEach
+    void initStore() {
+      ThreadContext.bind(subject);
+      store.init(null);
+    }
+
+    @AfterEach
+    void unbindSubject() {
+      ThreadContext.unbindSubject();
+    }
+
+    @Test
+    void shouldReturnOnlyWikiRepositories() {
+      when(computer.compute(eq(REPOSITORY_3), any())).thenReturn(createInfo(REPOSITORY_3, "main", true));
+      when(subject.isPermitted("repository:read:3")).thenReturn(true);
+      when(repositoryManager.get("3")).thenReturn(REPOSITORY_3);
+      store.detectRepositoryChanges(new RepositoryEvent(CREATE, REPOSITORY_3));
+
+      List<SmeagolRepositoryInformation> repositories = store.getWikiRepositories();
+
+      assertThat(repositories).extracting("id").containsExactly("3");
+      verify(repositoryManager, never()).get("1");
+    }
+
+    @Test
+    void shouldNotReturnWikiRepositoriesWithoutPermission() {
+      when(computer.compute(eq(REPOSITORY_3), any())).thenReturn(createInfo(REPOSITORY_3, "main", true));
+      store.detectRepositoryChanges(new RepositoryEvent(CREATE, REPOSITORY_3));
+
+      List<SmeagolRepositoryInformation> repositories = store.getWikiRepositories();
+
+      assertThat(repositories).isEmpty();
+    }
+
+    @Test
+    void shouldRemoveRepositoryWithDisabledWiki() {
+      when(computer.compute(eq(REPOSITORY_3), any()))
+        .thenReturn(createInfo(REPOSITORY_3, "main", true), createInfo(REPOSITORY_3, "main", false));
+      store.detectRepositoryChanges(new RepositoryEvent(CREATE, REPOSITORY_3));
+      store.detectCodeChanges(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(null, REPOSITORY_3, POST_RECEIVE)));
+
+      List<SmeagolRepositoryInformation> repositories = store.getWikiRepositories();
+
+      assertThat(repositories).isEmpty();
+    }
+  }
+
   @Nested
   class ForHookEvents {
 
     @Mock
     HookContext context;
+    @Mock
+    HookBranchProvider branchProvider;
 
     @BeforeEach
     void initStore() {
@@ -146,7 +279,7 @@ class SmeagolRepositoryStoreTest {
 
     @Test
     void shouldUpdateInformationAfterCodeChange() {
-      when(computer.compute(REPOSITORY_1)).thenReturn(createInfo(REPOSITORY_1, "other", true));
+      when(computer.compute(eq(REPOSITORY_1), any())).thenReturn(createInfo(REPOSITORY_1, "other", true));
 
       store.detectCodeChanges(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(context, REPOSITORY_1, POST_RECEIVE)));
 
@@ -156,11 +289,53 @@ class SmeagolRepositoryStoreTest {
       assertThat(information.isWikiEnabled()).isTrue();
     }
 
+    @Test
+    void shouldPassPushedBranchesToComputer() {
+      when(context.isFeatureSupported(HookFeature.BRANCH_PROVIDER)).thenReturn(true);
+      when(context.getBranchProvider()).thenReturn(branchProvider);
+      when(branchProvider.getCreatedOrModified()).thenReturn(singletonList("feature"));
+      when(computer.compute(REPOSITORY_1, singleton("feature"))).thenReturn(createInfo(REPOSITORY_1, "main", true));
+
+      store.detectCodeChanges(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(context, REPOSITORY_1, POST_RECEIVE)));
+
+      assertThat(store.getRepositories().get(0).isWikiEnabled()).isTrue();
+    }
+
+    @Test
+    void shouldCoalesceRecomputationsForSameRepository() {
+      List<Runnable> scheduled = new ArrayList<>();
+      store.recomputeExecutor = scheduled::add;
+      when(context.isFeatureSupported(HookFeature.BRANCH_PROVIDER)).thenReturn(true);
+      when(context.getBranchProvider()).thenReturn(branchProvider);
+      when(branchProvider.getCreatedOrModified()).thenReturn(singletonList("feature"), singletonList("develop"));
+      when(computer.compute(eq(REPOSITORY_1), any())).thenReturn(createInfo(REPOSITORY_1, "main", true));
+
+      store.detectCodeChanges(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(context, REPOSITORY_1, POST_RECEIVE)));
+      store.detectCodeChanges(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(context, REPOSITORY_1, POST_RECEIVE)));
+
+      assertThat(scheduled).hasSize(1);
+      scheduled.get(0).run();
+
+      verify(computer).compute(REPOSITORY_1, new HashSet<>(asList("feature", "develop")));
+      assertThat(store.getRepositories().get(0).isWikiEnabled()).isTrue();
+    }
+
+    @Test
+    void shouldScheduleAgainAfterRecomputationFinished() {
+      when(computer.compute(eq(REPOSITORY_1), any())).thenReturn(createInfo(REPOSITORY_1, "main", true));
+
+      store.detectCodeChanges(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(context, REPOSITORY_1, POST_RECEIVE)));
+      store.detectCodeChanges(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(context, REPOSITORY_1, POST_RECEIVE)));
+
+      verify(computer, times(2)).compute(eq(REPOSITORY_1), any());
+    }
+
     @Test
     void shouldIgnoreIrrelevantRepositoryType() {
       store.detectCodeChanges(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(context, REPOSITORY_2, POST_RECEIVE)));
 
       verify(computer, never()).compute(any());
+      verify(computer, never()).compute(any(), any());
     }
   }
 
@@ -176,7 +351,7 @@ class SmeagolRepositoryStoreTest {
     void shouldUpdateInformationAfterCodeChange() {
       Repository newRepository = new Repository("4", "git", "space", "repo_4");
       ALL_REPOSITORIES.add(newRepository);
-      when(computer.compute(newRepository)).thenReturn(createInfo(newRepository, "new", true));
+      when(computer.compute(eq(newRepository), any())).thenReturn(createInfo(newRepository, "new", true));
 
       store.detectRepositoryChanges(new RepositoryEvent(CREATE, newRepository));
 
@@ -187,6 +362,22 @@ class SmeagolRepositoryStoreTest {
       assertThat(information.isWikiEnabled()).isTrue();
     }
 
+    @Test
+    void shouldScheduleComputationForUnknownRepository() {
+      Repository newRepository = new Repository("4", "git", "space", "repo_4");
+      List<Runnable> scheduled = new ArrayList<>();
+      store.recomputeExecutor = scheduled::add;
+      when(computer.compute(eq(newRepository), any())).thenReturn(createInfo(newRepository, "new", true));
+
+      assertThat(store.findFor(newRepository)).isEmpty();
+      assertThat(scheduled).hasSize(1);
+
+      scheduled.get(0).run();
+
+      assertThat(store.findFor(newRepository))
+        .hasValueSatisfying(information -> assertThat(information.isWikiEnabled()).isTrue());
+    }
+
     @Test
     void shouldComputeInformationOnDemandIfMissing() {
       Repository newRepository = new Repository("4", "git", "space", "repo_4");
@@ -199,6 +390,63 @@ class SmeagolRepositoryStoreTest {
       assertThat(information.getDefaultBranch()).isEqualTo("new");
       assertThat(information.isWikiEnabled()).isTrue();
     }
+
+    @Test
+    void shouldKeepVersionForInformationComputedOnDemand() {
+      Repository newRepository = new Repository("4", "git", "space", "repo_4");
+      ALL_REPOSITORIES.add(newRepository);
+      when(computer.compute(newRepository)).thenReturn(createInfo(newRepository, "new", true));
+      long version = store.getVersion();
+
+      store.getRepositories();
+
+      assertThat(store.getVersion()).isEqualTo(version);
+    }
+  }
+
+  @Nested
+  class WithoutAwaitingInitialization {
+
+    private final CountDownLatch initializerBlocker = new CountDownLatch(1);
+    private final CountDownLatch firstInformationProvided = new CountDownLatch(1);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void initStore() {
+      store.awaitInitialization = false;
+      lenient().doAnswer(invocation -> {
+        invocation.getArgument(0, BiConsumer.class).accept(REPOSITORY_1.getId(), createDefaultInfo(REPOSITORY_1));
+        firstInformationProvided.countDown();
+        initializerBlocker.await();
+        return null;
+      }).when(informationInitializer).initialize(any());
+      store.init(null);
+    }
+
+    @AfterEach
+    void releaseInitializer() {
+      initializerBlocker.countDown();
+    }
+
+    @Test
+    void shouldProvideInformationAsSoonAsItIsComputed() throws InterruptedException {
+      assertThat(firstInformationProvided.await(10, TimeUnit.SECONDS)).isTrue();
+
+      SmeagolRepositoryInformation information = store.getFor(REPOSITORY_1);
+
+      assertThat(information.getDefaultBranch()).isEqualTo("main");
+      verify(computer, never()).compute(REPOSITORY_1);
+    }
+
+    @Test
+    void shouldComputeMissingInformationWhileInitializing() {
+      when(computer.compute(REPOSITORY_3)).thenReturn(createInfo(REPOSITORY_3, "develop", true));
+
+      SmeagolRepositoryInformation information = store.getFor(REPOSITORY_3);
+
+      assertThat(information.getDefaultBranch()).isEqualTo("develop");
+      assertThat(information.isWikiEnabled()).isTrue();
+    }
   }
 
   private RepositoryInformation createDefaultInfo(Repository repository) {
@@ -16,6 +16,7 @@
 
 package com.cloudogu.scm.smeagol;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.shiro.subject.Subject;
 import org.apache.shiro.util.ThreadContext;
 import org.jboss.resteasy.mock.MockHttpRequest;
@@ -26,24 +27,31 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.PageResult;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryTestData;
 import sonia.scm.web.RestDispatcher;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singletonList;
+import static jakarta.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
 import static jakarta.servlet.http.HttpServletResponse.SC_NO_CONTENT;
 import static jakarta.servlet.http.HttpServletResponse.SC_OK;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.jboss.resteasy.mock.MockHttpRequest.get;
 import static org.jboss.resteasy.mock.MockHttpRequest.put;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -71,7 +79,7 @@ class SmeagolResourceTest {
     configurationMapper.linkBuilder = smeagolLinkBuilder;
     SmeagolRepositoryInformationDtoMapper informationMapper = new SmeagolRepositoryInformationDtoMapperImpl();
     informationMapper.linkBuilder = smeagolLinkBuilder;
-    SmeagolResource resource = new SmeagolResource(store, smeagolLinkBuilder, configuration, configurationMapper, informationMapper);
+    SmeagolResource resource = new SmeagolResource(store, smeagolLinkBuilder, configuration, configurationMapper, informationMapper, new ObjectMapper());
     dispatcher.addSingletonResource(resource);
   }
 
@@ -85,6 +93,11 @@ class SmeagolResourceTest {
     ThreadContext.unbindSubject();
   }
 
+  @BeforeEach
+  void initConfiguration() {
+    lenient().when(configuration.get()).thenReturn(new SmeagolConfiguration.Config());
+  }
+
   @BeforeEach
   void initLinks() {
     lenient().when(smeagolLinkBuilder.getRepositoriesLink()).thenReturn("/v2/smeagol/repositories");
@@ -114,7 +127,7 @@ class SmeagolResourceTest {
 
   @Test
   void shouldGetSmeagolRepositoriesOnly() throws URISyntaxException, UnsupportedEncodingException {
-    when(store.getRepositories()).thenReturn(singletonList(new SmeagolRepositoryInformation(REPOSITORY, new RepositoryInformation("main", false))));
+    when(store.getWikiRepositories()).thenReturn(singletonList(new SmeagolRepositoryInformation(REPOSITORY, new RepositoryInformation("main", true))));
 
     MockHttpRequest request = get("/v2/smeagol/repositories?wikiEnabled=true");
 
@@ -122,7 +135,106 @@ class SmeagolResourceTest {
 
     assertThat(response.getStatus()).isEqualTo(SC_OK);
     assertThat(response.getContentAsString())
-      .contains("\"repositories\":[]");
+      .contains("\"namespace\":\"hitchhiker\"")
+      .contains("\"wikiEnabled\":true");
+    verify(store, never()).getRepositories();
+  }
+
+  @Test
+  void shouldReturnEntityTag() throws URISyntaxException {
+    when(store.getVersion()).thenReturn(42L);
+
+    MockHttpRequest request = get("/v2/smeagol/repositories");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(SC_OK);
+    assertThat(response.getOutputHeaders().getFirst("ETag").toString()).contains("42-");
+  }
+
+  @Test
+  void shouldMarkResponseAsPrivate() throws URISyntaxException {
+    dispatcher.invoke(get("/v2/smeagol/repositories"), response);
+
+    assertThat(response.getOutputHeaders().getFirst("Cache-Control").toString()).contains("private");
+    assertThat(response.getOutputHeaders().getFirst("Vary").toString()).contains("Authorization");
+  }
+
+  @Test
+  void shouldReturnOtherEntityTagForOtherUser() throws URISyntaxException {
+    when(subject.getPrincipal()).thenReturn("trillian");
+    dispatcher.invoke(get("/v2/smeagol/repositories"), response);
+    String entityTag = response.getOutputHeaders().getFirst("ETag").toString();
+
+    when(subject.getPrincipal()).thenReturn("dent");
+    MockHttpResponse secondResponse = new MockHttpResponse();
+    dispatcher.invoke(get("/v2/smeagol/repositories"), secondResponse);
+
+    assertThat(secondResponse.getOutputHeaders().getFirst("ETag").toString()).isNotEqualTo(entityTag);
+  }
+
+  @Test
+  void shouldReturnOtherEntityTagForChangedConfiguration() throws URISyntaxException {
+    dispatcher.invoke(get("/v2/smeagol/repositories"), response);
+    String entityTag = response.getOutputHeaders().getFirst("ETag").toString();
+
+    SmeagolConfiguration.Config changed = new SmeagolConfiguration.Config();
+    changed.setSmeagolUrl("https://smeagol.hitchhiker.com/");
+    when(configuration.get()).thenReturn(changed);
+    MockHttpResponse secondResponse = new MockHttpResponse();
+    dispatcher.invoke(get("/v2/smeagol/repositories"), secondResponse);
+
+    assertThat(secondResponse.getOutputHeaders().getFirst("ETag").toString()).isNotEqualTo(entityTag);
+  }
+
+  @Test
+  void shouldReturnNotModifiedForUnchangedVersion() throws URISyntaxException {
+    when(store.getVersion()).thenReturn(42L);
+    dispatcher.invoke(get("/v2/smeagol/repositories"), response);
+    String entityTag = response.getOutputHeaders().getFirst("ETag").toString().replace("\"", "");
+
+    MockHttpResponse secondResponse = new MockHttpResponse();
+    dispatcher.invoke(get("/v2/smeagol/repositories").header("If-None-Match", "\"" + entityTag + "\""), secondResponse);
+
+    assertThat(secondResponse.getStatus()).isEqualTo(SC_NOT_MODIFIED);
+    verify(store, times(1)).getRepositories();
+  }
+
+  @Test
+  void shouldGetPageOfRepositories() throws URISyntaxException, UnsupportedEncodingException {
+    when(store.getRepositories(false, 1, 1)).thenReturn(new PageResult<>(singletonList(new SmeagolRepositoryInformation(REPOSITORY, new RepositoryInformation("main", true))), 3));
+    when(smeagolLinkBuilder.getRepositoriesLink(eq(false), anyInt(), eq(1))).thenAnswer(
+      invocation -> "/v2/smeagol/repositories?page=" + invocation.getArgument(1)
+    );
+
+    MockHttpRequest request = get("/v2/smeagol/repositories?page=1&pageSize=1");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(SC_OK);
+    assertThat(response.getContentAsString())
+      .contains("\"page\":1")
+      .contains("\"pageTotal\":3")
+      .contains("\"self\":{\"href\":\"/v2/smeagol/repositories?page=1\"}")
+      .contains("\"prev\":{\"href\":\"/v2/smeagol/repositories?page=0\"}")
+      .contains("\"next\":{\"href\":\"/v2/smeagol/repositories?page=2\"}")
+      .contains("\"namespace\":\"hitchhiker\"");
+  }
+
+  @Test
+  void shouldStreamRepositories() throws URISyntaxException, UnsupportedEncodingException {
+    when(store.streamRepositories(false)).thenReturn(Stream.of(new SmeagolRepositoryInformation(REPOSITORY, new RepositoryInformation("main", true))));
+
+    MockHttpRequest request = get("/v2/smeagol/repositories?stream=true");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(SC_OK);
+    assertThat(response.getContentAsString())
+      .startsWith("{\"_links\":{\"self\":{\"href\":\"/v2/smeagol/repositories\"}}")
+      .contains("\"_embedded\":{\"repositories\":[{")
+      .contains("\"namespace\":\"hitchhiker\"")
+      .contains("\"ui\":{\"href\":\"/repo/hitchhiker/HeartOfGold\"}");
   }
 
   @Test
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * Generates a local git repository with a synthetic smeagol wiki, so that tests and benchmarks can
+ * work with repositories of production size without network access. The generated content only
+ * depends on the configured parameters and the seed.
+ *
+ * <pre>
+ * SyntheticWikiRepository repository = SyntheticWikiRepository.builder()
+ *   .pages(10_000)
+ *   .depth(3)
+ *   .branches(5)
+ *   .commits(50)
+ *   .smeagolDirectory("docs")
+ *   .create(directory);
+ * </pre>
+ */
+public class SyntheticWikiRepository {
+
+  public static final String DEFAULT_BRANCH = "main";
+
+  private static final PersonIdent AUTHOR = new PersonIdent(
+    "Trillian Astra", "trillian@hitchhiker.com", Date.from(Instant.parse("2020-01-01T00:00:00Z")), TimeZone.getTimeZone("UTC")
+  );
+
+  private final Path directory;
+  private final List<String> pages;
+  private final Set<String> changedPages;
+  private final List<String> branches;
+
+  private SyntheticWikiRepository(Path directory, List<String> pages, Set<String> changedPages, List<String> branches) {
+    this.directory = directory;
+    this.pages = Collections.unmodifiableList(pages);
+    this.changedPages = Collections.unmodifiableSet(changedPages);
+    this.branches = Collections.unmodifiableList(branches);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * The working directory of the repository; the git directory is the <code>.git</code> folder inside.
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * The paths of all markdown pages in the default branch.
+   */
+  public List<String> getPages() {
+    return pages;
+  }
+
+  /**
+   * The paths of the pages modified in the default branch after the initial commit.
+   */
+  public Set<String> getChangedPages() {
+    return changedPages;
+  }
+
+  /**
+   * The names of all branches, starting with the default branch.
+   */
+  public List<String> getBranches() {
+    return branches;
+  }
+
+  /**
+   * Reads all files of the given branch with their content, ordered by path, e.g. to answer mocked
+   * commands of a repository service.
+   */
+  public Map<String, byte[]> readFiles(String branch) throws IOException {
+    Map<String, byte[]> files = new TreeMap<>();
+    try (Git git = Git.open(directory.toFile());
+         RevWalk revWalk = new RevWalk(git.getRepository());
+         TreeWalk treeWalk = new TreeWalk(git.getRepository())) {
+      ObjectId head = git.getRepository().resolve("refs/heads/" + branch);
+      if (head == null) {
+        throw new IOException("unknown branch " + branch);
+      }
+      treeWalk.addTree(revWalk.parseCommit(head).getTree());
+      treeWalk.setRecursive(true);
+      while (treeWalk.next()) {
+        files.put(treeWalk.getPathString(), git.getRepository().open(treeWalk.getObjectId(0)).getBytes());
+      }
+    }
+    return files;
+  }
+
+  public static class Builder {
+
+    private int pages = 100;
+    private int depth = 2;
+    private int directoriesPerLevel = 5;
+    private int branches = 1;
+    private int commits = 1;
+    private int pageSize = 2048;
+    private int assetsEvery = 10;
+    private String smeagolDirectory = "docs";
+    private long seed = 42;
+
+    private Builder() {
+    }
+
+    /**
+     * Number of markdown pages in the default branch.
+     */
+    public Builder pages(int pages) {
+      this.pages = pages;
+      return this;
+    }
+
+    /**
+     * Number of directory levels below the smeagol directory.
+     */
+    public Builder depth(int depth) {
+      this.depth = depth;
+      return this;
+    }
+
+    /**
+     * Number of sub directories created for each directory.
+     */
+    public Builder directoriesPerLevel(int directoriesPerLevel) {
+      this.directoriesPerLevel = directoriesPerLevel;
+      return this;
+    }
+
+    /**
+     * Number of branches including the default branch. Each additional branch modifies one page.
+     */
+    public Builder branches(int branches) {
+      this.branches = branches;
+      return this;
+    }
+
+    /**
+     * Number of commits in the default branch. Each commit after the first one modifies some pages;
+     * without pages it changes <code>changelog.txt</code> in the repository root instead, so that no
+     * commit is empty.
+     */
+    public Builder commits(int commits) {
+      this.commits = commits;
+      return this;
+    }
+
+    /**
+     * Approximate size of each page in bytes.
+     */
+    public Builder pageSize(int pageSize) {
+      this.pageSize = pageSize;
+      return this;
+    }
+
+    /**
+     * Adds an image next to every n-th page, so that the wiki contains files which are no documents;
+     * 0 disables images.
+     */
+    public Builder assetsEvery(int assetsEvery) {
+      this.assetsEvery = assetsEvery;
+      return this;
+    }
+
+    /**
+     * The directory written to <code>.smeagol.yml</code>; "." puts the pages into the repository root.
+     * With <code>null</code> no <code>.smeagol.yml</code> is created, so the repository is no wiki.
+     */
+    public Builder smeagolDirectory(String smeagolDirectory) {
+      this.smeagolDirectory = smeagolDirectory;
+      return this;
+    }
+
+    public Builder seed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    public SyntheticWikiRepository create(Path directory) throws IOException {
+      try {
+        return new Generator(this, directory).generate();
+      } catch (GitAPIException e) {
+        throw new IOException("failed to generate synthetic repository in " + directory, e);
+      }
+    }
+  }
+
+  private static class Generator {
+
+    private final Builder config;
+    private final Path directory;
+    private final Random random;
+    private final String pageDirectory;
+    private final Set<String> changedPages = new LinkedHashSet<>();
+
+    private Generator(Builder config, Path directory) {
+      this.config = config;
+      this.directory = directory;
+      this.random = new Random(config.seed);
+      String smeagolDirectory = config.smeagolDirectory == null ? "docs" : config.smeagolDirectory;
+      this.pageDirectory = ".".equals(smeagolDirectory) ? "" : smeagolDirectory + "/";
+    }
+
+    private SyntheticWikiRepository generate() throws IOException, GitAPIException {
+      try (Git git = Git.init().setDirectory(directory.toFile()).setInitialBranch(DEFAULT_BRANCH).call()) {
+        if (config.smeagolDirectory != null) {
+          write(".smeagol.yml", "directory: " + config.smeagolDirectory + "\n");
+        }
+        List<String> pages = new ArrayList<>(config.pages);
+        for (int i = 0; i < config.pages; ++i) {
+          String page = pageDirectory + directoryOf(i) + "page-" + i + ".md";
+          write(page, content(page, 0));
+          if (config.assetsEvery > 0 && i % config.assetsEvery == 0) {
+            write(pageDirectory + directoryOf(i) + "image-" + i + ".png", "not really an image " + i);
+          }
+          pages.add(page);
+        }
+        commit(git, "initial wiki");
+
+        for (int revision = 1; revision < config.commits; ++revision) {
+          modifyPages(git, pages, revision, Math.max(1, pages.size() / 100));
+        }
+        Set<String> changedInDefaultBranch = new LinkedHashSet<>(changedPages);
+
+        List<String> branches = new ArrayList<>();
+        branches.add(DEFAULT_BRANCH);
+        for (int i = 1; i < config.branches; ++i) {
+          String branch = "feature/branch-" + i;
+          git.checkout().setCreateBranch(true).setName(branch).setStartPoint(DEFAULT_BRANCH).call();
+          modifyPages(git, pages, config.commits + i, 1);
+          branches.add(branch);
+        }
+        if (config.branches > 1) {
+          git.checkout().setName(DEFAULT_BRANCH).call();
+        }
+        return new SyntheticWikiRepository(directory, pages, changedInDefaultBranch, branches);
+      }
+    }
+
+    private String directoryOf(int page) {
+      StringBuilder path = new StringBuilder();
+      int index = page;
+      for (int level = 0; level < config.depth; ++level) {
+        path.append("level-").append(level).append('-').append(index % config.directoriesPerLevel).append('/');
+        index /= config.directoriesPerLevel;
+      }
+      return path.toString();
+    }
+
+    private void modifyPages(Git git, List<String> pages, int revision, int count) throws IOException, GitAPIException {
+      if (pages.isEmpty()) {
+        write("changelog.txt", "revision " + revision);
+      }
+      for (int i = 0; i < count && !pages.isEmpty(); ++i) {
+        String page = pages.get(random.nextInt(pages.size()));
+        write(page, content(page, revision));
+        changedPages.add(page);
+      }
+      commit(git, "revision " + revision);
+    }
+
+    private String content(String page, int revision) {
+      StringBuilder content = new StringBuilder(config.pageSize + 128);
+      content.append("# ").append(page).append("\n\nrevision ").append(revision).append("\n\n");
+      while (content.length() < config.pageSize) {
+        content.append("Lorem ipsum ").append(random.nextInt(100_000)).append(" dolor sit amet.\n");
+      }
+      return content.toString();
+    }
+
+    private void write(String path, String content) throws IOException {
+      Path file = directory.resolve(path);
+      Files.createDirectories(file.getParent());
+      Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void commit(Git git, String message) throws GitAPIException {
+      git.add().addFilepattern(".").call();
+      git.commit().setMessage(message).setAuthor(AUTHOR).setCommitter(AUTHOR).setSign(false).call();
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Ref;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyntheticWikiRepositoryTest {
+
+  @Test
+  void shouldCreateWikiWithConfiguredLayout(@TempDir Path directory) throws IOException, GitAPIException {
+    SyntheticWikiRepository repository = SyntheticWikiRepository.builder()
+      .pages(50)
+      .depth(2)
+      .branches(3)
+      .commits(4)
+      .smeagolDirectory("wiki")
+      .create(directory);
+
+    assertThat(repository.getPages())
+      .hasSize(50)
+      .allMatch(page -> page.startsWith("wiki/level-0-") && page.endsWith(".md"))
+      .allMatch(page -> Files.exists(directory.resolve(page)));
+    assertThat(directory.resolve(".smeagol.yml")).hasContent("directory: wiki");
+    assertThat(repository.getBranches()).containsExactly("main", "feature/branch-1", "feature/branch-2");
+
+    try (Git git = Git.open(directory.toFile())) {
+      assertThat(git.getRepository().getBranch()).isEqualTo("main");
+      assertThat(git.branchList().call()).extracting(Ref::getName)
+        .containsExactlyInAnyOrder("refs/heads/main", "refs/heads/feature/branch-1", "refs/heads/feature/branch-2");
+      assertThat(StreamSupport.stream(git.log().call().spliterator(), false)).hasSize(4);
+    }
+  }
+
+  @Test
+  void shouldPutPagesIntoRootDirectory(@TempDir Path directory) throws IOException {
+    SyntheticWikiRepository repository = SyntheticWikiRepository.builder()
+      .pages(10)
+      .depth(0)
+      .smeagolDirectory(".")
+      .create(directory);
+
+    assertThat(repository.getPages()).contains("page-0.md", "page-9.md");
+  }
+
+  @Test
+  void shouldCreateRepositoryWithoutWiki(@TempDir Path directory) throws IOException {
+    SyntheticWikiRepository.builder()
+      .pages(1)
+      .smeagolDirectory(null)
+      .create(directory);
+
+    assertThat(directory.resolve(".smeagol.yml")).doesNotExist();
+  }
+
+  @Test
+  void shouldChangeChangelogForCommitsWithoutPages(@TempDir Path directory) throws IOException, GitAPIException {
+    SyntheticWikiRepository repository = SyntheticWikiRepository.builder()
+      .pages(0)
+      .commits(3)
+      .create(directory);
+
+    assertThat(repository.getPages()).isEmpty();
+    assertThat(repository.getChangedPages()).isEmpty();
+    assertThat(directory.resolve("changelog.txt")).hasContent("revision 2");
+    try (Git git = Git.open(directory.toFile())) {
+      assertThat(StreamSupport.stream(git.log().call().spliterator(), false)).hasSize(3);
+    }
+  }
+
+  @Test
+  void shouldReadFilesOfBranch(@TempDir Path directory) throws IOException {
+    SyntheticWikiRepository repository = SyntheticWikiRepository.builder()
+      .pages(20)
+      .depth(1)
+      .branches(2)
+      .commits(3)
+      .assetsEvery(10)
+      .create(directory);
+
+    Map<String, byte[]> files = repository.readFiles(SyntheticWikiRepository.DEFAULT_BRANCH);
+
+    assertThat(files.keySet())
+      .containsAll(repository.getPages())
+      .contains(".smeagol.yml", "docs/level-0-0/image-0.png", "docs/level-0-0/image-10.png")
+      .hasSize(23);
+    assertThat(repository.getChangedPages()).isNotEmpty().isSubsetOf(repository.getPages());
+    for (String page : repository.getPages()) {
+      assertThat(files.get(page)).isEqualTo(Files.readAllBytes(directory.resolve(page)));
+    }
+    assertThat(repository.readFiles("feature/branch-1")).hasSameSizeAs(files);
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.DefaultBranchChangedEvent;
+import sonia.scm.repository.PostReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryHookEvent;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.search.Index;
+import sonia.scm.search.SearchEngine;
+import sonia.scm.web.security.AdministrationContext;
+import sonia.scm.web.security.PrivilegedAction;
+
+import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static sonia.scm.repository.RepositoryHookType.POST_RECEIVE;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("UnstableApiUsage")
+class IndexListenerTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold("git");
+
+  @Mock
+  private AdministrationContext administrationContext;
+  @Mock
+  private RepositoryManager repositoryManager;
+  @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+  private SearchEngine searchEngine;
+  @Mock
+  private StaleIndexDetector staleIndexDetector;
+
+  private IndexListener listener;
+
+  @BeforeEach
+  void initListener() {
+    listener = new IndexListener(administrationContext, repositoryManager, searchEngine, staleIndexDetector);
+  }
+
+  @Nested
+  class OnStartup {
+
+    private final Repository stale = RepositoryTestData.createHeartOfGold("git");
+    private final Repository upToDate = RepositoryTestData.createRestaurantAtTheEndOfTheUniverse("git");
+    private final Repository irrelevant = RepositoryTestData.create42Puzzle("hg");
+    private final ExecutorService branchLookupExecutor = MoreExecutors.newDirectExecutorService();
+
+    @BeforeEach
+    void mockRepositories() {
+      stale.setId("stale");
+      upToDate.setId("upToDate");
+      irrelevant.setId("irrelevant");
+      listener.startupCheckExecutor = Runnable::run;
+      listener.branchLookupExecutorFactory = () -> branchLookupExecutor;
+      doAnswer(invocation -> {
+        invocation.getArgument(0, PrivilegedAction.class).run();
+        return null;
+      }).when(administrationContext).runAsAdmin(any(PrivilegedAction.class));
+      when(repositoryManager.getAll()).thenReturn(asList(stale, upToDate, irrelevant));
+    }
+
+    @Test
+    void shouldOnlySubmitTasksForStaleRepositories() {
+      doAnswer(invocation -> {
+        invocation.<Consumer<Repository>>getArgument(2).accept(stale);
+        return null;
+      }).when(staleIndexDetector).findStale(eq(asList(stale, upToDate)), any(), any());
+
+      listener.contextInitialized(null);
+
+      verify(searchEngine.forType(SmeagolDocument.class).forResource(stale)).update(any(IndexerTask.class));
+      verify(searchEngine.forType(SmeagolDocument.class), never()).forResource(upToDate);
+      verify(searchEngine.forType(SmeagolDocument.class), never()).forResource(irrelevant);
+    }
+
+    @Test
+    void shouldResolveBranchesAsAdminOnLookupExecutorAndShutItDown() {
+      AtomicBoolean lookedUp = new AtomicBoolean();
+      doAnswer(invocation -> {
+        invocation.<Executor>getArgument(1).execute(() -> lookedUp.set(true));
+        return null;
+      }).when(staleIndexDetector).findStale(any(), any(), any());
+
+      listener.contextInitialized(null);
+
+      assertThat(lookedUp).isTrue();
+      // once for the check itself and once for the branch lookup
+      verify(administrationContext, times(2)).runAsAdmin(any(PrivilegedAction.class));
+      assertThat(branchLookupExecutor.isShutdown()).isTrue();
+    }
+
+    @Test
+    void shouldSubmitTasksForAllRelevantRepositoriesIfCheckFails() {
+      doThrow(new IllegalStateException("failed")).when(staleIndexDetector).findStale(any(), any(), any());
+
+      listener.contextInitialized(null);
+
+      verify(searchEngine.forType(SmeagolDocument.class).forResource(stale)).update(any(IndexerTask.class));
+      verify(searchEngine.forType(SmeagolDocument.class).forResource(upToDate)).update(any(IndexerTask.class));
+      verify(searchEngine.forType(SmeagolDocument.class), never()).forResource(irrelevant);
+      assertThat(branchLookupExecutor.isShutdown()).isTrue();
+    }
+  }
+
+  @Nested
+  class ForPushes {
+
+    @Mock
+    private IndexSyncer syncer;
+    @Mock
+    private Index<SmeagolDocument> index;
+
+    @Test
+    void shouldStampTimeOfPush() {
+      Instant before = Instant.now();
+
+      listener.handle(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(null, repository, POST_RECEIVE)));
+
+      IndexerTask task = submittedTask();
+      assertThat(task.getRepository()).isSameAs(repository);
+      assertThat(task.getPushedAt()).isBetween(before, Instant.now());
+    }
+
+    @Test
+    void shouldPassTimeOfPushToSyncer() {
+      listener.handle(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(null, repository, POST_RECEIVE)));
+
+      IndexerTask task = submittedTask();
+      task.setSyncer(syncer);
+      task.update(index);
+
+      verify(syncer).ensureIndexIsUpToDate(index, repository, task.getPushedAt());
+    }
+
+    @Test
+    void shouldNotStampTimeForChangedDefaultBranch() {
+      DefaultBranchChangedEvent event = mock(DefaultBranchChangedEvent.class);
+      when(event.getRepository()).thenReturn(repository);
+
+      listener.handle(event);
+
+      assertThat(submittedTask().getPushedAt()).isNull();
+    }
+  }
+
+  private IndexerTask submittedTask() {
+    ArgumentCaptor<IndexerTask> captor = ArgumentCaptor.forClass(IndexerTask.class);
+    verify(searchEngine.forType(SmeagolDocument.class).forResource(repository)).update(captor.capture());
+    return captor.getValue();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sonia.scm.HandlerEventType;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.RepositoryTestData;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexMetricsTest {
+
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+  private final IndexMetrics metrics = new IndexMetrics(registry);
+
+  private final Repository heartOfGold = RepositoryTestData.createHeartOfGold();
+  private final Repository puzzle = RepositoryTestData.create42Puzzle();
+
+  @BeforeEach
+  void registerMeters() {
+    metrics.updates(heartOfGold, IndexMetrics.TYPE_FULL).increment();
+    metrics.collection(heartOfGold).record(() -> {});
+    metrics.updates(puzzle, IndexMetrics.TYPE_FULL).increment();
+  }
+
+  @Test
+  void shouldRemoveMetersOfDeletedRepository() {
+    metrics.handle(new RepositoryEvent(HandlerEventType.DELETE, heartOfGold));
+
+    assertThat(registry.find("smeagol.index.updates").tag(IndexMetrics.TAG_REPOSITORY, tag(heartOfGold)).counter()).isNull();
+    assertThat(registry.find("smeagol.index.collection").timer()).isNull();
+    assertThat(registry.find("smeagol.index.updates").tag(IndexMetrics.TAG_REPOSITORY, tag(puzzle)).counter()).isNotNull();
+  }
+
+  @Test
+  void shouldRemoveMetersOfRenamedRepository() {
+    Repository renamed = heartOfGold.clone();
+    renamed.setName("HeartOfPlatinum");
+
+    metrics.handle(new RepositoryEvent(HandlerEventType.MODIFY, renamed, heartOfGold));
+
+    assertThat(registry.find("smeagol.index.updates").tag(IndexMetrics.TAG_REPOSITORY, tag(heartOfGold)).counter()).isNull();
+    assertThat(registry.find("smeagol.index.updates").tag(IndexMetrics.TAG_REPOSITORY, tag(puzzle)).counter()).isNotNull();
+  }
+
+  @Test
+  void shouldKeepMetersOfModifiedRepository() {
+    Repository modified = heartOfGold.clone();
+    modified.setDescription("improbable");
+
+    metrics.handle(new RepositoryEvent(HandlerEventType.MODIFY, modified, heartOfGold));
+
+    assertThat(registry.find("smeagol.index.updates").tag(IndexMetrics.TAG_REPOSITORY, tag(heartOfGold)).counter()).isNotNull();
+  }
+
+  private String tag(Repository repository) {
+    return repository.getNamespaceAndName().toString();
+  }
+}
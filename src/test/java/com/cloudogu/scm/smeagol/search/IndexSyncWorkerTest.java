@@ -16,10 +16,14 @@
 
 package com.cloudogu.scm.smeagol.search;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import sonia.scm.repository.Branch;
@@ -27,12 +31,19 @@ import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryTestData;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.lenient;
@@ -53,9 +64,12 @@ class IndexSyncWorkerTest {
   @Mock
   private IndexStatusStore indexStatusStore;
   @Mock
+  private IndexedPathStore indexedPathStore;
+  @Mock
   private Indexer indexer;
 
   private final Repository repository = RepositoryTestData.createHeartOfGold();
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
   private IndexSyncWorker worker;
 
@@ -66,6 +80,8 @@ class IndexSyncWorkerTest {
       updatePathCollector,
       revisionPathCollector,
       indexStatusStore,
+      indexedPathStore,
+      new IndexMetrics(meterRegistry),
       indexer,
       repository
     );
@@ -79,6 +95,7 @@ class IndexSyncWorkerTest {
     worker.ensureIndexIsUpToDate();
 
     verify(indexer).deleteAll();
+    verify(indexedPathStore).remove(repository);
     verify(indexStatusStore).empty(repository);
   }
 
@@ -101,6 +118,7 @@ class IndexSyncWorkerTest {
       @BeforeEach
       void mockDefaultBranch() {
         lenient().when(revisionPathCollector.getPathToStore()).thenReturn(pathsFromDefaultBranch);
+        lenient().when(revisionPathCollector.hasSmeagolConfiguration()).thenReturn(true);
       }
 
       @Test
@@ -113,6 +131,16 @@ class IndexSyncWorkerTest {
         verifyReIndex();
       }
 
+      @Test
+      void shouldReportReIndexOfSmeagolRepository() throws IOException {
+        when(indexStatusStore.get(repository))
+          .thenReturn(empty());
+
+        boolean updated = worker.ensureIndexIsUpToDate();
+
+        assertThat(updated).isTrue();
+      }
+
       @Test
       void shouldReIndexIfStoredVersionIsNotCurrent() throws IOException {
         when(indexStatusStore.get(repository))
@@ -144,10 +172,10 @@ class IndexSyncWorkerTest {
       }
 
       @Test
-      void shouldReIndexIfConfigurationChanged() throws IOException {
+      void shouldReIndexIfSmeagolDirectoryChanged() throws IOException {
         when(indexStatusStore.get(repository))
           .thenReturn(of(new IndexStatus("23", "main", Instant.now(), SmeagolDocument.VERSION)));
-        when(updatePathCollector.isConfigurationChanged())
+        when(updatePathCollector.isSmeagolDirectoryChanged())
           .thenReturn(true);
 
         worker.ensureIndexIsUpToDate();
@@ -161,8 +189,9 @@ class IndexSyncWorkerTest {
         when(indexStatusStore.get(repository))
           .thenReturn(of(new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION)));
 
-        worker.ensureIndexIsUpToDate();
+        boolean updated = worker.ensureIndexIsUpToDate();
 
+        assertThat(updated).isFalse();
         verifyNoInteractions(updatePathCollector);
         verifyNoInteractions(revisionPathCollector);
         verifyNoInteractions(indexer);
@@ -175,13 +204,84 @@ class IndexSyncWorkerTest {
         verifyReIndex();
       }
 
+      @Test
+      void shouldOnlyStoreChangedDocumentsIfSmeagolDirectoryChanged() throws IOException {
+        when(indexStatusStore.get(repository))
+          .thenReturn(of(new IndexStatus("23", "main", Instant.now(), SmeagolDocument.VERSION)));
+        when(updatePathCollector.isSmeagolDirectoryChanged()).thenReturn(true);
+        when(updatePathCollector.isComplete()).thenReturn(true);
+        when(updatePathCollector.getPathToStore()).thenReturn(new HashSet<>(asList("docs/changed.md")));
+        when(indexedPathStore.get(repository))
+          .thenReturn(of(new HashSet<>(asList("docs/unchanged.md", "docs/changed.md", "docs/removed.md"))));
+        pathsFromDefaultBranch.addAll(asList("docs/unchanged.md", "docs/changed.md", "docs/new.md"));
+
+        worker.ensureIndexIsUpToDate();
+
+        verify(indexer, never()).deleteAll();
+        verify(indexer).delete(Set.of("docs/removed.md"));
+        verify(indexer).store(branch, Set.of("docs/changed.md", "docs/new.md"));
+        verify(indexedPathStore).set(repository, pathsFromDefaultBranch);
+        verify(indexStatusStore).update(repository, branch);
+        assertThat(updates(IndexMetrics.TYPE_CHANGES)).isEqualTo(1);
+      }
+
+      @Test
+      void shouldOnlyStoreChangedDocumentsIfDefaultBranchChanged() throws IOException {
+        when(indexStatusStore.get(repository))
+          .thenReturn(of(new IndexStatus("23", "develop", Instant.now(), SmeagolDocument.VERSION)));
+        when(updatePathCollector.isComplete()).thenReturn(true);
+        when(updatePathCollector.getPathToStore()).thenReturn(emptySet());
+        when(indexedPathStore.get(repository))
+          .thenReturn(of(new HashSet<>(asList("docs/unchanged.md"))));
+        pathsFromDefaultBranch.add("docs/unchanged.md");
+
+        worker.ensureIndexIsUpToDate();
+
+        verify(updatePathCollector).collect("23", "42");
+        verify(indexer, never()).deleteAll();
+        verify(indexer).delete(emptySet());
+        verify(indexer).store(branch, emptySet());
+      }
+
+      @Test
+      void shouldReIndexCompletelyIfChangesAreIncomplete() throws IOException {
+        when(indexStatusStore.get(repository))
+          .thenReturn(of(new IndexStatus("23", "main", Instant.now(), SmeagolDocument.VERSION)));
+        when(updatePathCollector.isSmeagolDirectoryChanged()).thenReturn(true);
+        when(indexedPathStore.get(repository))
+          .thenReturn(of(new HashSet<>(asList("docs/unchanged.md"))));
+
+        worker.ensureIndexIsUpToDate();
+
+        verifyReIndex();
+      }
+
       private void verifyReIndex() throws IOException {
         verify(indexer).deleteAll();
         verify(revisionPathCollector).collect("42");
         verify(indexer).store(same(branch), same(pathsFromDefaultBranch));
+        verify(indexedPathStore).set(repository, pathsFromDefaultBranch);
+        assertThat(updates(IndexMetrics.TYPE_FULL)).isEqualTo(1);
+        assertThat(meterRegistry.get("smeagol.index.collection").timer().count()).isGreaterThanOrEqualTo(1);
       }
     }
 
+    @Test
+    void shouldUpdateIndexIfConfigurationChangedWithinSameDirectory() throws IOException {
+      when(indexStatusStore.get(repository))
+        .thenReturn(of(new IndexStatus("23", "main", Instant.now(), SmeagolDocument.VERSION)));
+      when(updatePathCollector.isSmeagolDirectoryChanged()).thenReturn(false);
+      ArrayList<String> pathsToStore = new ArrayList<>();
+      when(updatePathCollector.getPathToStore())
+        .thenReturn(pathsToStore);
+
+      worker.ensureIndexIsUpToDate();
+
+      verify(indexer, never()).deleteAll();
+      verifyNoInteractions(revisionPathCollector);
+      verify(indexer).store(same(branch), same(pathsToStore));
+    }
+
     @Test
     void shouldUpdateIndex() throws IOException {
       when(indexStatusStore.get(repository))
@@ -192,12 +292,50 @@ class IndexSyncWorkerTest {
       ArrayList<String> pathsToStore = new ArrayList<>();
       when(updatePathCollector.getPathToStore())
         .thenReturn(pathsToStore);
+      when(updatePathCollector.hasSmeagolConfiguration()).thenReturn(true);
 
-      worker.ensureIndexIsUpToDate();
+      boolean updated = worker.ensureIndexIsUpToDate();
 
+      assertThat(updated).isTrue();
       verify(updatePathCollector).collect("23", "42");
       verify(indexer).delete(same(pathsToDelete));
       verify(indexer).store(same(branch), same(pathsToStore));
+      verify(indexedPathStore).update(repository, pathsToDelete, pathsToStore);
+      assertThat(updates(IndexMetrics.TYPE_INCREMENTAL)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotReportOrMeasureUpdateWithoutSmeagolConfiguration() throws IOException {
+      when(indexStatusStore.get(repository))
+        .thenReturn(of(new IndexStatus("23", "main", Instant.now(), SmeagolDocument.VERSION)));
+      when(updatePathCollector.hasSmeagolConfiguration()).thenReturn(false);
+
+      boolean updated = worker.ensureIndexIsUpToDate();
+
+      assertThat(updated).isFalse();
+      assertThat(meterRegistry.find("smeagol.index.updates").counter()).isNull();
+      assertThat(meterRegistry.find("smeagol.index.collection").timer()).isNull();
     }
   }
+
+  @Test
+  void shouldRecordPushLatency() {
+    worker.recordPushLatency(Instant.now().minusSeconds(30));
+
+    Timer latency = meterRegistry.get("smeagol.index.latency").timer();
+    assertThat(latency.count()).isEqualTo(1);
+    assertThat(latency.totalTime(TimeUnit.SECONDS)).isGreaterThanOrEqualTo(30);
+
+    ArgumentCaptor<Duration> captor = ArgumentCaptor.forClass(Duration.class);
+    verify(indexStatusStore).updatePushLatency(same(repository), captor.capture());
+    assertThat(captor.getValue()).isGreaterThanOrEqualTo(Duration.ofSeconds(30));
+  }
+
+  private double updates(String type) {
+    return meterRegistry.get("smeagol.index.updates")
+      .tag(IndexMetrics.TAG_REPOSITORY, "hitchhiker/HeartOfGold")
+      .tag(IndexMetrics.TAG_TYPE, type)
+      .counter()
+      .count();
+  }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.search.Index;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("UnstableApiUsage")
+class IndexSyncerTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold("git");
+
+  @Mock
+  private RepositoryServiceFactory repositoryServiceFactory;
+  @Mock
+  private IndexerFactory indexerFactory;
+  @Mock
+  private IndexSyncWorkerFactory indexSyncWorkerFactory;
+
+  @Mock
+  private RepositoryService repositoryService;
+  @Mock
+  private Indexer indexer;
+  @Mock
+  private IndexSyncWorker worker;
+  @Mock
+  private Index<SmeagolDocument> index;
+
+  @InjectMocks
+  private IndexSyncer syncer;
+
+  @BeforeEach
+  void initWorker() {
+    when(repositoryServiceFactory.create(repository)).thenReturn(repositoryService);
+    when(indexerFactory.create(index, repositoryService)).thenReturn(indexer);
+    when(indexSyncWorkerFactory.create(repositoryService, indexer)).thenReturn(worker);
+  }
+
+  @Test
+  void shouldRecordLatencyOfPushAfterUpdate() throws IOException {
+    Instant pushedAt = Instant.now();
+    when(worker.ensureIndexIsUpToDate()).thenReturn(true);
+
+    syncer.ensureIndexIsUpToDate(index, repository, pushedAt);
+
+    verify(worker).ensureIndexIsUpToDate();
+    verify(worker).recordPushLatency(pushedAt);
+  }
+
+  @Test
+  void shouldNotRecordLatencyWithoutPush() throws IOException {
+    syncer.ensureIndexIsUpToDate(index, repository);
+
+    verify(worker).ensureIndexIsUpToDate();
+    verify(worker, never()).recordPushLatency(any());
+  }
+
+  @Test
+  void shouldNotRecordLatencyOfPushWithoutSmeagolConfiguration() throws IOException {
+    when(worker.ensureIndexIsUpToDate()).thenReturn(false);
+
+    syncer.ensureIndexIsUpToDate(index, repository, Instant.now());
+
+    verify(worker, never()).recordPushLatency(any());
+  }
+
+  @Test
+  void shouldNotRecordLatencyIfUpdateFailed() throws IOException {
+    doThrow(new IOException("failed")).when(worker).ensureIndexIsUpToDate();
+
+    syncer.ensureIndexIsUpToDate(index, repository, Instant.now());
+
+    verify(worker, never()).recordPushLatency(any());
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IndexedPathStoreTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  private final Map<String, IndexedPaths> entries = new HashMap<>();
+
+  @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+  private DataStoreFactory storeFactory;
+
+  private DataStore<IndexedPaths> dataStore;
+
+  private IndexedPathStore store;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void initStore() {
+    repository.setId("42");
+    dataStore = mock(DataStore.class);
+    lenient().when(dataStore.getOptional(anyString()))
+      .thenAnswer(invocation -> Optional.ofNullable(entries.get(invocation.getArgument(0, String.class))));
+    lenient().doAnswer(invocation -> entries.put(invocation.getArgument(0), invocation.getArgument(1)))
+      .when(dataStore).put(anyString(), any());
+    lenient().doAnswer(invocation -> entries.remove(invocation.getArgument(0, String.class)))
+      .when(dataStore).remove(anyString());
+    when(storeFactory.withType(IndexedPaths.class).withName("smeagol-search-paths").forRepository(repository).build())
+      .thenReturn(dataStore);
+    store = new IndexedPathStore(storeFactory);
+  }
+
+  @Test
+  void shouldReturnEmptyIfPathsAreUnknown() {
+    assertThat(store.get(repository)).isEmpty();
+  }
+
+  @Test
+  void shouldReturnPaths() {
+    store.set(repository, asList("Home.md", "docs/a.md", "docs/sub/c.md"));
+
+    assertThat(store.get(repository))
+      .hasValueSatisfying(known -> assertThat(known).containsExactlyInAnyOrder("Home.md", "docs/a.md", "docs/sub/c.md"));
+    assertThat(entries).hasSize(1);
+  }
+
+  @Test
+  void shouldRememberEmptyPaths() {
+    store.set(repository, emptyList());
+
+    assertThat(store.get(repository)).hasValueSatisfying(known -> assertThat(known).isEmpty());
+  }
+
+  @Test
+  void shouldNotRewriteUnchangedPaths() {
+    store.set(repository, asList("docs/a.md", "docs/b.md"));
+    clearInvocations(dataStore);
+
+    store.set(repository, asList("docs/b.md", "docs/a.md"));
+
+    verify(dataStore, never()).put(anyString(), any());
+  }
+
+  @Test
+  void shouldApplyUpdate() {
+    store.set(repository, asList("docs/a.md", "docs/b.md"));
+
+    store.update(repository, singletonList("docs/a.md"), singletonList("docs/c.md"));
+
+    assertThat(store.get(repository))
+      .hasValueSatisfying(known -> assertThat(known).containsExactlyInAnyOrder("docs/b.md", "docs/c.md"));
+  }
+
+  @Test
+  void shouldNotRewritePathsForUpdateOfExistingDocuments() {
+    store.set(repository, asList("docs/a.md", "docs/b.md"));
+    clearInvocations(dataStore);
+
+    store.update(repository, emptyList(), singletonList("docs/a.md"));
+
+    verify(dataStore, never()).put(anyString(), any());
+  }
+
+  @Test
+  void shouldNotUpdateUnknownPaths() {
+    store.update(repository, emptyList(), singletonList("docs/a.md"));
+
+    assertThat(store.get(repository)).isEmpty();
+    assertThat(entries).isEmpty();
+  }
+
+  @Test
+  void shouldRemovePaths() {
+    store.set(repository, asList("Home.md", "docs/a.md"));
+
+    store.remove(repository);
+
+    assertThat(store.get(repository)).isEmpty();
+  }
+}
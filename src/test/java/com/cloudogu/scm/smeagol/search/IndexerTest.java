@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.search.Id;
+import sonia.scm.search.Index;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("UnstableApiUsage")
+class IndexerTest {
+
+  private static final IndexReaderExecutor READER_EXECUTOR = new IndexReaderExecutor();
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+  private final Branch branch = Branch.defaultBranch("main", "42", 0L);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Mock
+  private SmeagolDocumentFactory documentFactory;
+  @Mock
+  private Index<SmeagolDocument> index;
+  @Mock
+  private RepositoryService repositoryService;
+  @Mock
+  private RepositoryServiceFactory repositoryServiceFactory;
+  @Mock
+  private RepositoryService readerService;
+
+  private Indexer indexer;
+
+  @AfterAll
+  static void closeReaderExecutor() {
+    READER_EXECUTOR.close();
+  }
+
+  @BeforeEach
+  void initIndexer() {
+    repository.setId("42");
+    when(repositoryService.getRepository()).thenReturn(repository);
+    indexer = new Indexer(
+      documentFactory,
+      index,
+      repositoryServiceFactory,
+      repositoryService,
+      READER_EXECUTOR,
+      new IndexMetrics(meterRegistry)
+    );
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldReadAndStoreDocumentsInBatches() throws IOException {
+    when(documentFactory.create(eq(repositoryService), eq(branch), anyCollection())).thenAnswer(
+      invocation -> invocation.getArgument(2, Collection.class)
+        .stream()
+        .map(path -> new SmeagolDocument(branch, (String) path, "42", "content"))
+        .collect(toList())
+    );
+
+    indexer.store(branch, asList("docs/a.md", "docs/b.md", "docs/c.md"));
+
+    verify(documentFactory).create(repositoryService, branch, asList("docs/a.md", "docs/b.md", "docs/c.md"));
+    verify(index, times(3)).store(any(Id.class), eq("repository:pull:42"), any(SmeagolDocument.class));
+    assertThat(meterRegistry.get("smeagol.index.documents.stored").counter().count()).isEqualTo(3);
+    assertThat(meterRegistry.get("smeagol.index.content").counter().count()).isEqualTo(21);
+    assertThat(meterRegistry.get("smeagol.index.read").timer().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("smeagol.index.write").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldReadBatchesConcurrently() throws IOException {
+    indexer.batchSize = 2;
+    indexer.readerCount = 3;
+    when(repositoryServiceFactory.create(repository)).thenReturn(readerService);
+    when(documentFactory.create(eq(readerService), eq(branch), anyCollection())).thenAnswer(
+      invocation -> invocation.getArgument(2, Collection.class)
+        .stream()
+        .map(path -> new SmeagolDocument(branch, (String) path, "42", "content"))
+        .collect(toList())
+    );
+
+    indexer.store(branch, asList("docs/a.md", "docs/b.md", "docs/c.md", "docs/d.md", "docs/e.md"));
+
+    verify(documentFactory, times(3)).create(eq(readerService), eq(branch), anyCollection());
+    verify(index, times(5)).store(any(Id.class), eq("repository:pull:42"), any(SmeagolDocument.class));
+    verify(readerService, timeout(1000).atLeastOnce()).close();
+    verify(repositoryService, never()).close();
+  }
+
+  @Test
+  void shouldPassReadFailureToCaller() throws IOException {
+    indexer.batchSize = 1;
+    indexer.readerCount = 2;
+    when(repositoryServiceFactory.create(repository)).thenReturn(readerService);
+    when(documentFactory.create(eq(readerService), eq(branch), anyCollection()))
+      .thenThrow(new IOException("failed to read"));
+
+    List<String> paths = asList("docs/a.md", "docs/b.md");
+
+    assertThrows(IOException.class, () -> indexer.store(branch, paths));
+    verifyNoInteractions(index);
+  }
+
+  @Test
+  void shouldPassErrorOfReaderToCaller() throws IOException {
+    indexer.batchSize = 1;
+    indexer.readerCount = 2;
+    when(repositoryServiceFactory.create(repository)).thenReturn(readerService);
+    when(documentFactory.create(eq(readerService), eq(branch), anyCollection()))
+      .thenThrow(new OutOfMemoryError("blob too large"));
+
+    List<String> paths = asList("docs/a.md", "docs/b.md", "docs/c.md");
+
+    assertTimeoutPreemptively(
+      Duration.ofSeconds(10),
+      () -> assertThrows(OutOfMemoryError.class, () -> indexer.store(branch, paths))
+    );
+    verifyNoInteractions(index);
+  }
+
+  @Test
+  void shouldPassFailureToOpenRepositoryServiceToCaller() {
+    indexer.batchSize = 1;
+    indexer.readerCount = 2;
+    when(repositoryServiceFactory.create(repository)).thenThrow(new IllegalStateException("no service"));
+
+    List<String> paths = asList("docs/a.md", "docs/b.md");
+
+    assertTimeoutPreemptively(
+      Duration.ofSeconds(10),
+      () -> assertThrows(IllegalStateException.class, () -> indexer.store(branch, paths))
+    );
+    verifyNoInteractions(documentFactory, index);
+  }
+
+  @Test
+  void shouldNotReadAnythingWithoutPaths() throws IOException {
+    List<String> paths = Collections.emptyList();
+
+    indexer.store(branch, paths);
+
+    verifyNoInteractions(documentFactory, index);
+  }
+}
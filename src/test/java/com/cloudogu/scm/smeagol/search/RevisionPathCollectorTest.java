@@ -31,14 +31,16 @@ import sonia.scm.repository.api.RepositoryService;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import static java.util.Arrays.asList;
-import static java.util.Collections.singletonList;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Answers.RETURNS_SELF;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -61,6 +63,7 @@ class RevisionPathCollectorTest {
 
     collector.collect("anything");
 
+    assertThat(collector.hasSmeagolConfiguration()).isFalse();
     assertThat(collector.getPathToDelete()).isEmpty();
     assertThat(collector.getPathToStore()).isEmpty();
   }
@@ -68,18 +71,26 @@ class RevisionPathCollectorTest {
   @Nested
   class WithDocumentsTest {
 
+    private final Map<String, FileObject> directories = new HashMap<>();
+    private String browsedPath;
+
     @BeforeEach
     void setUpFiles() throws IOException {
       when(smeagolConfigurationResolver.getSmeagolPath()).thenReturn(of("docs"));
 
       when(repositoryService.getBrowseCommand()).thenReturn(browseCommand);
-      BrowserResult browserResult = new BrowserResult("42", createTree());
-      when(browseCommand.getBrowserResult()).thenReturn(browserResult);
+      when(browseCommand.setPath(any())).thenAnswer(invocation -> {
+        browsedPath = invocation.getArgument(0);
+        return browseCommand;
+      });
+      when(browseCommand.getBrowserResult())
+        .thenAnswer(invocation -> new BrowserResult("42", directories.get(browsedPath)));
+      createTree();
     }
 
     @AfterEach
     void hasToReadConfig() {
-      verify(smeagolConfigurationResolver).readConfig();
+      verify(smeagolConfigurationResolver).readConfig("42");
     }
 
     @Test
@@ -94,6 +105,7 @@ class RevisionPathCollectorTest {
       collector.collect("42");
 
       verify(browseCommand).setPath("docs");
+      assertThat(collector.hasSmeagolConfiguration()).isTrue();
     }
 
     @Test
@@ -109,39 +121,53 @@ class RevisionPathCollectorTest {
         "docs/directory/sub.md"
       );
     }
-  }
 
-  private FileObject createTree() {
-    FileObject root = new FileObject();
-    root.setName("docs");
-    root.setPath("docs");
-    root.setDirectory(true);
+    @Test
+    void shouldBrowseEachDirectoryWithoutRecursion() {
+      collector.collect("42");
 
-    FileObject md = new FileObject();
-    md.setName("some.md");
-    md.setPath("docs/some.md");
-    md.setDirectory(false);
+      verify(browseCommand).setPath("docs");
+      verify(browseCommand).setPath("docs/directory");
+      verify(browseCommand, never()).setRecursive(true);
+    }
 
-    FileObject other = new FileObject();
-    other.setName("other.jpg");
-    other.setPath("docs/other.jpg");
-    other.setDirectory(false);
+    @Test
+    void shouldContinueWithNextPageOfTruncatedDirectory() throws IOException {
+      FileObject firstPage = directory("docs", file("docs/first.md"));
+      firstPage.setTruncated(true);
+      FileObject secondPage = directory("docs", file("docs/second.md"));
+      when(browseCommand.getBrowserResult())
+        .thenReturn(new BrowserResult("42", firstPage), new BrowserResult("42", secondPage));
+      when(smeagolConfigurationResolver.isSmeagolDocument(any())).thenReturn(true);
 
-    FileObject directory = new FileObject();
-    directory.setName("directory");
-    directory.setPath("docs/directory");
-    directory.setDirectory(true);
+      collector.collect("42");
 
-    FileObject inDirectoryMD = new FileObject();
-    inDirectoryMD.setName("sub.md");
-    inDirectoryMD.setPath("docs/directory/sub.md");
-    inDirectoryMD.setDirectory(false);
+      verify(browseCommand).setOffset(0);
+      verify(browseCommand).setOffset(1);
+      assertThat(collector.getPathToStore()).containsExactlyInAnyOrder("docs/first.md", "docs/second.md");
+    }
 
-    directory.setChildren(singletonList(inDirectoryMD));
+    private void createTree() {
+      directories.put("docs", directory("docs", file("docs/other.jpg"), file("docs/some.md"), directory("docs/directory")));
+      directories.put("docs/directory", directory("docs/directory", file("docs/directory/sub.md")));
+    }
+  }
 
-    root.setChildren(asList(other, md, directory));
+  private FileObject directory(String path, FileObject... children) {
+    FileObject directory = new FileObject();
+    directory.setName(path.substring(path.lastIndexOf('/') + 1));
+    directory.setPath(path);
+    directory.setDirectory(true);
+    directory.setChildren(asList(children));
+    return directory;
+  }
 
-    return root;
+  private FileObject file(String path) {
+    FileObject file = new FileObject();
+    file.setName(path.substring(path.lastIndexOf('/') + 1));
+    file.setPath(path);
+    file.setDirectory(false);
+    return file;
   }
 
 }
@@ -23,6 +23,7 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import sonia.scm.NotFoundException;
 import sonia.scm.repository.api.RepositoryService;
@@ -32,6 +33,7 @@ import java.util.stream.Stream;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Answers.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +43,9 @@ class SmeagolConfigurationResolverTest {
   @Mock(answer = RETURNS_DEEP_STUBS)
   private RepositoryService service;
 
+  @Spy
+  private SmeagolConfigurationCache cache = new SmeagolConfigurationCache();
+
   @InjectMocks
   private SmeagolConfigurationResolver resolver;
 
@@ -93,6 +98,27 @@ class SmeagolConfigurationResolverTest {
     verify(service.getCatCommand()).setRevision("42");
   }
 
+  @Test
+  void shouldCacheConfigurationOfRevision() throws Exception {
+    when(service.getCatCommand().getContent(".smeagol.yml"))
+      .thenReturn("directory: wiki");
+
+    resolver.readConfig("42");
+    resolver.readConfig("42");
+
+    assertThat(resolver.getSmeagolPath()).contains("wiki");
+    verify(service.getCatCommand(), times(1)).getContent(".smeagol.yml");
+  }
+
+  @Test
+  void shouldReadSmeagolPathWithoutChangingState() throws Exception {
+    when(service.getCatCommand().getContent(".smeagol.yml"))
+      .thenReturn("directory: wiki");
+
+    assertThat(resolver.readSmeagolPath("23")).contains("wiki");
+    assertThat(resolver.getSmeagolPath()).isEmpty();
+  }
+
   @ParameterizedTest
   @MethodSource("provideTestDataForIsSmeagolDocument")
   void isSmeagolDocument(String smeagolConfig, String path, boolean expected) throws Exception {
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import com.google.common.base.Strings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.CatCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SmeagolDocumentFactoryTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+  private final Branch branch = Branch.defaultBranch("main", "42", 0L);
+
+  @Mock
+  private RepositoryService repositoryService;
+  @Mock
+  private CatCommandBuilder catCommand;
+
+  private final SmeagolDocumentFactory factory = new SmeagolDocumentFactory();
+
+  @BeforeEach
+  void mockCatCommand() {
+    repository.setId("hog");
+    when(repositoryService.getRepository()).thenReturn(repository);
+    when(repositoryService.getCatCommand()).thenReturn(catCommand);
+    when(catCommand.setRevision("42")).thenReturn(catCommand);
+  }
+
+  @Test
+  void shouldCreateDocuments() throws IOException {
+    mockContent("docs/a.md", "# Äpfel");
+    mockContent("docs/b.md", "# Birnen");
+
+    List<SmeagolDocument> documents = factory.create(repositoryService, branch, asList("docs/a.md", "docs/b.md"));
+
+    assertThat(documents).extracting("path").containsExactly("docs/a.md", "docs/b.md");
+    assertThat(documents).extracting("content").containsExactly("# Äpfel", "# Birnen");
+    assertThat(documents).extracting("repositoryId").containsOnly("hog");
+  }
+
+  @Test
+  void shouldReadContentLargerThanTheBuffer() throws IOException {
+    String content = Strings.repeat("Smeagol ", 5000);
+    mockContent("docs/large.md", content);
+
+    SmeagolDocument document = factory.create(repositoryService, branch, "docs/large.md");
+
+    assertThat(document.getContent()).isEqualTo(content);
+  }
+
+  @Test
+  void shouldTruncateContentAtMaximumLength() throws IOException {
+    factory.maxContentLength = 10;
+    mockContent("docs/large.md", Strings.repeat("Smeagol ", 5000));
+
+    SmeagolDocument document = factory.create(repositoryService, branch, "docs/large.md");
+
+    assertThat(document.getContent()).isEqualTo("Smeagol Sm");
+  }
+
+  @Test
+  void shouldKeepContentOfExactlyMaximumLength() throws IOException {
+    factory.maxContentLength = 7;
+    mockContent("docs/exact.md", "Smeagol");
+
+    SmeagolDocument document = factory.create(repositoryService, branch, "docs/exact.md");
+
+    assertThat(document.getContent()).isEqualTo("Smeagol");
+  }
+
+  @Test
+  void shouldKeepSurrogatePairEndingAtMaximumLength() throws IOException {
+    factory.maxContentLength = 5;
+    mockContent("docs/emoji.md", "abc😀");
+
+    SmeagolDocument document = factory.create(repositoryService, branch, "docs/emoji.md");
+
+    assertThat(document.getContent()).isEqualTo("abc😀");
+  }
+
+  @Test
+  void shouldNotSplitSurrogatePairsWhenTruncating() throws IOException {
+    factory.maxContentLength = 4;
+    mockContent("docs/emoji.md", "abc😀def");
+
+    SmeagolDocument document = factory.create(repositoryService, branch, "docs/emoji.md");
+
+    assertThat(document.getContent()).isEqualTo("abc");
+  }
+
+  private void mockContent(String path, String content) throws IOException {
+    when(catCommand.getStream(path)).thenReturn(new ByteArrayInputStream(content.getBytes(UTF_8)));
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SmeagolPathMatcherTest {
+
+  @ParameterizedTest
+  @MethodSource("provideTestData")
+  void shouldMatchMarkdownFilesInDirectory(String directory, String path, boolean expected) {
+    SmeagolPathMatcher matcher = SmeagolPathMatcher.forDirectory(directory);
+
+    assertThat(matcher.matches(path)).isEqualTo(expected);
+  }
+
+  private static Stream<Arguments> provideTestData() {
+    return Stream.of(
+      Arguments.of("docs", "docs/a.md", true),
+      Arguments.of("docs", "docs/A.MD", true),
+      Arguments.of("docs", "docs/deep/down/a.Md", true),
+      Arguments.of("docs", "docs/b.png", false),
+      Arguments.of("docs", "docs/md", false),
+      Arguments.of("docs", "other/a.md", false),
+      Arguments.of("docs", "docsandmore/a.md", false),
+      Arguments.of("docs", "docs.md", false),
+      Arguments.of("docs/", "docs/a.md", true),
+      Arguments.of("./docs", "docs/a.md", true),
+      Arguments.of(".", "a.md", true),
+      Arguments.of(".", "any/where/a.md", true),
+      Arguments.of(".", "a.txt", false),
+      Arguments.of("", "a.md", true),
+      Arguments.of("", "md", false)
+    );
+  }
+}
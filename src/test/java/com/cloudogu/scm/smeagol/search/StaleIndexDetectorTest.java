@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.smeagol.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Branches;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BranchesCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StaleIndexDetectorTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  @Mock
+  private RepositoryServiceFactory repositoryServiceFactory;
+  @Mock
+  private IndexStatusStore indexStatusStore;
+
+  @InjectMocks
+  private StaleIndexDetector detector;
+
+  @BeforeEach
+  void setId() {
+    repository.setId("hog");
+  }
+
+  @Test
+  void shouldBeStaleWithoutStatus() {
+    when(indexStatusStore.getAll()).thenReturn(Map.of());
+
+    assertThat(findStale(repository)).containsExactly(repository);
+    verifyNoInteractions(repositoryServiceFactory);
+  }
+
+  @Test
+  void shouldBeStaleWithOldVersion() {
+    mockStatus(new IndexStatus("42", "main", Instant.now(), 0));
+
+    assertThat(findStale(repository)).containsExactly(repository);
+    verifyNoInteractions(repositoryServiceFactory);
+  }
+
+  @Test
+  void shouldPassRepositoriesWithoutStatusBeforeBranchesAreResolved() {
+    Repository withoutStatus = RepositoryTestData.createRestaurantAtTheEndOfTheUniverse();
+    withoutStatus.setId("withoutStatus");
+    mockStatus(new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+    List<Runnable> lookups = new ArrayList<>();
+    List<Repository> stale = new ArrayList<>();
+
+    detector.findStale(asList(repository, withoutStatus), lookups::add, stale::add);
+
+    assertThat(stale).containsExactly(withoutStatus);
+    assertThat(lookups).hasSize(1);
+    verifyNoInteractions(repositoryServiceFactory);
+  }
+
+  @Nested
+  class WithRepositoryService {
+
+    @Mock
+    private RepositoryService repositoryService;
+    @Mock
+    private BranchesCommandBuilder branchesCommand;
+
+    @BeforeEach
+    void mockService() {
+      when(repositoryServiceFactory.create(repository)).thenReturn(repositoryService);
+      when(repositoryService.getBranchesCommand()).thenReturn(branchesCommand);
+    }
+
+    @Test
+    void shouldNotBeStaleForCurrentRevision() throws IOException {
+      mockDefaultBranch("main", "42");
+      mockStatus(new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+
+      assertThat(findStale(repository)).isEmpty();
+    }
+
+    @Test
+    void shouldBeStaleForOtherRevision() throws IOException {
+      mockDefaultBranch("main", "43");
+      mockStatus(new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+
+      assertThat(findStale(repository)).containsExactly(repository);
+    }
+
+    @Test
+    void shouldBeStaleForOtherBranch() throws IOException {
+      mockDefaultBranch("develop", "42");
+      mockStatus(new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+
+      assertThat(findStale(repository)).containsExactly(repository);
+    }
+
+    @Test
+    void shouldNotBeStaleForEmptyRepositoryWithEmptyStatus() throws IOException {
+      when(branchesCommand.getBranches()).thenReturn(new Branches());
+      mockStatus(IndexStatus.createEmpty());
+
+      assertThat(findStale(repository)).isEmpty();
+    }
+
+    @Test
+    void shouldBeStaleForEmptyStatusWithNewDefaultBranch() throws IOException {
+      mockDefaultBranch("main", "42");
+      mockStatus(IndexStatus.createEmpty());
+
+      assertThat(findStale(repository)).containsExactly(repository);
+    }
+
+    @Test
+    void shouldOnlyPassStaleRepositories() throws IOException {
+      Repository upToDate = RepositoryTestData.createRestaurantAtTheEndOfTheUniverse();
+      upToDate.setId("upToDate");
+      RepositoryService upToDateService = mock(RepositoryService.class, RETURNS_DEEP_STUBS);
+      when(repositoryServiceFactory.create(upToDate)).thenReturn(upToDateService);
+      when(upToDateService.getBranchesCommand().getBranches()).thenReturn(new Branches(Branch.defaultBranch("main", "42", 0L)));
+      mockDefaultBranch("main", "43");
+      when(indexStatusStore.getAll()).thenReturn(Map.of(
+        "hog", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION),
+        "upToDate", new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION)
+      ));
+
+      assertThat(findStale(repository, upToDate)).containsExactly(repository);
+    }
+
+    @Test
+    void shouldBeStaleIfDefaultBranchCannotBeResolved() throws IOException {
+      when(branchesCommand.getBranches()).thenThrow(new IllegalStateException("broken"));
+      mockStatus(new IndexStatus("42", "main", Instant.now(), SmeagolDocument.VERSION));
+
+      assertThat(findStale(repository)).containsExactly(repository);
+    }
+
+    private void mockDefaultBranch(String name, String revision) throws IOException {
+      when(branchesCommand.getBranches()).thenReturn(new Branches(Branch.defaultBranch(name, revision, 0L)));
+    }
+  }
+
+  private void mockStatus(IndexStatus status) {
+    when(indexStatusStore.getAll()).thenReturn(Map.of("hog", status));
+  }
+
+  private List<Repository> findStale(Repository... repositories) {
+    List<Repository> stale = new ArrayList<>();
+    detector.findStale(asList(repositories), Runnable::run, stale::add);
+    return stale;
+  }
+}
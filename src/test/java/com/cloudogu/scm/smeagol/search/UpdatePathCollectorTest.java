@@ -63,6 +63,7 @@ class UpdatePathCollectorTest {
 
     collector.collect("23", "42");
 
+    assertThat(collector.hasSmeagolConfiguration()).isFalse();
     assertThat(collector.getPathToDelete()).isEmpty();
     assertThat(collector.getPathToStore()).isEmpty();
   }
@@ -77,6 +78,15 @@ class UpdatePathCollectorTest {
       when(repositoryService.getModificationsCommand()).thenReturn(modificationsCommand);
     }
 
+    @Test
+    void shouldBeIncompleteIfModificationsCouldNotBeLoaded() throws IOException {
+      when(modificationsCommand.getModifications()).thenThrow(new IOException("failed"));
+
+      collector.collect("23", "42");
+
+      assertThat(collector.isComplete()).isFalse();
+    }
+
     @Nested
     class WithChangedDocumentsTest {
 
@@ -91,6 +101,8 @@ class UpdatePathCollectorTest {
 
         verify(modificationsCommand).baseRevision("23");
         verify(modificationsCommand).revision("42");
+        assertThat(collector.isComplete()).isTrue();
+        assertThat(collector.hasSmeagolConfiguration()).isTrue();
       }
 
       @Test
@@ -146,6 +158,29 @@ class UpdatePathCollectorTest {
       assertThat(collector.isConfigurationChanged()).isTrue();
     }
 
+    @Test
+    void shouldDetectChangedSmeagolDirectory() throws IOException {
+      when(modificationsCommand.getModifications())
+        .thenReturn(new Modifications("42", new Modified(".smeagol.yml")));
+      when(smeagolConfigurationResolver.readSmeagolPath("23")).thenReturn(of("wiki"));
+
+      collector.collect("23", "42");
+
+      assertThat(collector.isSmeagolDirectoryChanged()).isTrue();
+    }
+
+    @Test
+    void shouldDetectUnchangedSmeagolDirectory() throws IOException {
+      when(modificationsCommand.getModifications())
+        .thenReturn(new Modifications("42", new Modified(".smeagol.yml")));
+      when(smeagolConfigurationResolver.readSmeagolPath("23")).thenReturn(of("docs"));
+
+      collector.collect("23", "42");
+
+      assertThat(collector.isConfigurationChanged()).isTrue();
+      assertThat(collector.isSmeagolDirectoryChanged()).isFalse();
+    }
+
     @Test
     void shouldDetectDeletedSmeagolConfig() throws IOException {
       when(modificationsCommand.getModifications())